@@ -0,0 +1,65 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.util.List;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.MergedDefectDataObj;
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+import com.coverity.ws.v4.MergedDefectsPageDataObj;
+import com.coverity.ws.v4.PageSpecDataObj;
+
+/**
+ * Pages through merged defects by CID instead of by offset. Every page is
+ * requested sorted by CID from start index 0 with the minimum CID set just past
+ * the last CID already returned, so the cost of a page does not grow with its
+ * position in the result set. The start index of the requested page spec is
+ * ignored; pages must be fetched one after the other.
+ */
+class CidRangePageFetcher implements MergedDefectPageFetcher {
+	static final String CID_SORT_FIELD = "cid";
+	private final MergedDefectQuery query;
+	private final MergedDefectFilterSpecDataObj filterSpec;
+	private Long nextMinCid;
+	private int returned = 0;
+
+	CidRangePageFetcher(MergedDefectQuery query,
+			MergedDefectFilterSpecDataObj filterSpec) {
+		this.query = query;
+		this.filterSpec = filterSpec;
+	}
+
+	public synchronized MergedDefectsPageDataObj fetch(PageSpecDataObj pageSpec)
+			throws CovRemoteServiceException_Exception {
+		MergedDefectsPageDataObj page = this.query.fetch(FilterSpecs
+				.withCidRange(this.filterSpec, this.nextMinCid, null),
+				createPageSpec(pageSpec.getPageSize(), true));
+
+		List<MergedDefectDataObj> defects = page.getMergedDefects();
+		if (!defects.isEmpty()) {
+			this.nextMinCid = defects.get(defects.size() - 1).getCid() + 1;
+		}
+
+		// report the total of the whole range, not just of what is left of it
+		if (page.getTotalNumberOfRecords() != null) {
+			page.setTotalNumberOfRecords(this.returned
+					+ page.getTotalNumberOfRecords().intValue());
+		}
+		this.returned += defects.size();
+
+		return page;
+	}
+
+	public void close() {
+	}
+
+	static PageSpecDataObj createPageSpec(int pageSize, boolean ascending) {
+		PageSpecDataObj pageSpec = new PageSpecDataObj();
+		pageSpec.setStartIndex(0);
+		pageSpec.setPageSize(pageSize);
+		pageSpec.setSortField(CID_SORT_FIELD);
+		pageSpec.setSortAscending(ascending);
+		return pageSpec;
+	}
+}
@@ -1,416 +1,1777 @@
-// (c) 2011 Coverity, Inc. All rights reserved worldwide.
-
-package com.coverity.ps.common;
-
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
-import javax.xml.namespace.QName;
-import javax.xml.ws.BindingProvider;
-import javax.xml.ws.WebServiceException;
-import javax.xml.ws.handler.Handler;
-import javax.xml.ws.soap.SOAPFaultException;
-
-import com.coverity.ps.common.config.ConfigurationManager;
-import com.coverity.ws.v4.ComponentIdDataObj;
-import com.coverity.ws.v4.ComponentMetricsDataObj;
-import com.coverity.ws.v4.ConfigurationService;
-import com.coverity.ws.v4.ConfigurationServiceService;
-import com.coverity.ws.v4.CovRemoteServiceException_Exception;
-import com.coverity.ws.v4.DefectService;
-import com.coverity.ws.v4.DefectServiceService;
-import com.coverity.ws.v4.DefectStateSpecDataObj;
-import com.coverity.ws.v4.MergedDefectDataObj;
-import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
-import com.coverity.ws.v4.MergedDefectsPageDataObj;
-import com.coverity.ws.v4.PageSpecDataObj;
-import com.coverity.ws.v4.ProjectDataObj;
-import com.coverity.ws.v4.ProjectFilterSpecDataObj;
-import com.coverity.ws.v4.ProjectIdDataObj;
-import com.coverity.ws.v4.ProjectSpecDataObj;
-import com.coverity.ws.v4.SnapshotFilterSpecDataObj;
-import com.coverity.ws.v4.SnapshotIdDataObj;
-import com.coverity.ws.v4.StreamDataObj;
-import com.coverity.ws.v4.StreamDefectDataObj;
-import com.coverity.ws.v4.StreamDefectFilterSpecDataObj;
-import com.coverity.ws.v4.StreamDefectIdDataObj;
-import com.coverity.ws.v4.StreamFilterSpecDataObj;
-import com.coverity.ws.v4.StreamIdDataObj;
-import com.coverity.ws.v4.StreamSpecDataObj;
-import com.coverity.ws.v4.UserDataObj;
-import com.coverity.ws.v4.UserFilterSpecDataObj;
-import com.coverity.ws.v4.UserSpecDataObj;
-import com.coverity.ws.v4.UsersPageDataObj;
-
-/**
- * Java wrapper around the CIM SOAP APIs
- */
-public class CimProxy {
-	private static CimProxy instance;
-	private String user;
-	private String password;
-	private String address;
-	private int port;
-	private ConfigurationService configurationService;
-	private DefectService defectService;
-
-	private CimProxy() {
-		this.user = ConfigurationManager.getInstance().getUser();
-		this.password = ConfigurationManager.getInstance().getPassword();
-		this.address = ConfigurationManager.getInstance().getAddress();
-		this.port = ConfigurationManager.getInstance().getPort();
-
-		try {
-			// build URL
-			StringBuilder commonUrl = new StringBuilder("http://");
-			commonUrl.append(this.address);
-			if (this.port > 0) {
-				commonUrl.append(":" + this.port);
-			}
-			commonUrl.append("/ws/v4");
-
-			// create configuration service instance
-			this.configurationService = new ConfigurationServiceService(
-					new URL(commonUrl.toString() + "/configurationservice?wsdl"),
-					new QName("http://ws.coverity.com/v4",
-							"ConfigurationServiceService"))
-					.getConfigurationServicePort();
-			BindingProvider bindingProvider = (BindingProvider) configurationService;
-			bindingProvider.getBinding().setHandlerChain(
-					new ArrayList<Handler>(Arrays
-							.asList(new ClientAuthenticationHandlerWSS(
-									this.user, this.password))));
-
-			// create defect service instance
-			this.defectService = new DefectServiceService(new URL(
-					commonUrl.toString() + "/defectservice?wsdl"), new QName(
-					"http://ws.coverity.com/v4", "DefectServiceService"))
-					.getDefectServicePort();
-			bindingProvider = (BindingProvider) defectService;
-			bindingProvider.getBinding().setHandlerChain(
-					new ArrayList<Handler>(Arrays
-							.asList(new ClientAuthenticationHandlerWSS(
-									this.user, this.password))));
-
-		} catch (SOAPFaultException e) {
-			System.err.println(e);
-		} catch (WebServiceException e) {
-			System.err.println(e);
-		} catch (MalformedURLException e) {
-			System.err.println(e);
-		}
-	}
-
-	public static CimProxy getInstance() {
-		if (instance == null) {
-			instance = new CimProxy();
-		}
-
-		return instance;
-	}
-
-	public List<StreamDefectDataObj> getAllStreamDefects(List<Long> cids,
-			String scope) throws CovRemoteServiceException_Exception {
-		StreamDefectFilterSpecDataObj filterSpec = new StreamDefectFilterSpecDataObj();
-		filterSpec.setScopePattern(scope);
-		filterSpec.setIncludeHistory(true);
-		filterSpec.setIncludeDefectInstances(true);
-		return getStreamDefects(cids, filterSpec);
-	}
-
-	public List<StreamDefectDataObj> getStreamDefects(List<Long> cids,
-			StreamDefectFilterSpecDataObj filterSpec)
-			throws CovRemoteServiceException_Exception {
-		if (configurationService == null || defectService == null) {
-			throw new CovRemoteServiceException_Exception(
-					"Services are uninitialized", null);
-		}
-
-		return this.defectService.getStreamDefects(cids, filterSpec);
-	}
-
-	public List<MergedDefectDataObj> getAllMergedDefectsForStreams(
-			List<String> names) throws CovRemoteServiceException_Exception {
-		return getMergedDefectsForStreams(names,
-				new MergedDefectFilterSpecDataObj());
-	}
-
-	public List<MergedDefectDataObj> getMergedDefectsForStreams(
-			List<String> names, MergedDefectFilterSpecDataObj filterSpec)
-			throws CovRemoteServiceException_Exception {
-		if (configurationService == null || defectService == null) {
-			throw new CovRemoteServiceException_Exception(
-					"Services are uninitialized", null);
-		}
-
-		List<StreamIdDataObj> streamIds = new ArrayList<StreamIdDataObj>();
-		for (String name : names) {
-			StreamIdDataObj streamId = new StreamIdDataObj();
-			streamId.setName(name);
-			streamIds.add(streamId);
-		}
-
-		PageSpecDataObj pageSpec = new PageSpecDataObj();
-		final int pageSize = 2500;
-		pageSpec.setPageSize(pageSize);
-
-		int count = 0;
-		int offset = 0;
-		MergedDefectsPageDataObj page = null;
-		List<MergedDefectDataObj> results = new ArrayList<MergedDefectDataObj>();
-		boolean empty = false;
-		do {
-			pageSpec.setStartIndex(offset);
-			page = this.defectService.getMergedDefectsForStreams(streamIds,
-					filterSpec, pageSpec);
-			results.addAll(page.getMergedDefects());
-			
-			empty = page.getMergedDefects().size() == 0;
-			if(!empty) {
-				count += page.getMergedDefects().size();
-				offset += pageSize;
-			}
-		} while (count < page.getTotalNumberOfRecords() && !empty);
-
-		return results;
-	}
-
-	public List<MergedDefectDataObj> getAllMergedDefectsForProject(
-			String project) throws CovRemoteServiceException_Exception {
-		return getMergedDefectsForProject(project,
-				new MergedDefectFilterSpecDataObj());
-	}
-	
-	public List<ComponentMetricsDataObj> getComponentMetricsForProject(String project, List<String> components) throws CovRemoteServiceException_Exception {
-		ProjectIdDataObj projectIdDataObj  = new ProjectIdDataObj();
-		projectIdDataObj.setName(project);
-		
-		List<ComponentIdDataObj> componentObjs = new ArrayList<ComponentIdDataObj>();
-		for(String component : components) {
-			ComponentIdDataObj dataObj = new ComponentIdDataObj();
-			dataObj.setName(component);
-			componentObjs.add(dataObj);
-		}
-		
-		return this.defectService.getComponentMetricsForProject(projectIdDataObj, componentObjs);
-	}
-
-	public List<MergedDefectDataObj> getMergedDefectsForProject(String project,
-			MergedDefectFilterSpecDataObj filterSpec)
-			throws CovRemoteServiceException_Exception {
-		if (configurationService == null || defectService == null) {
-			throw new CovRemoteServiceException_Exception(
-					"Services are uninitialized", null);
-		}
-
-		ProjectIdDataObj projectId = new ProjectIdDataObj();
-		projectId.setName(project);
-
-		PageSpecDataObj pageSpec = new PageSpecDataObj();
-		final int pageSize = 2500;
-		pageSpec.setPageSize(pageSize);
-
-		int count = 0;
-		int offset = 0;
-		MergedDefectsPageDataObj page = null;
-		List<MergedDefectDataObj> results = new ArrayList<MergedDefectDataObj>();
-		boolean empty = false;
-		do {
-			pageSpec.setStartIndex(offset);
-			page = this.defectService.getMergedDefectsForProject(projectId,
-					filterSpec, pageSpec);
-			results.addAll(page.getMergedDefects());
-
-			empty = page.getMergedDefects().size() == 0;
-			if(!empty) {
-				count += page.getMergedDefects().size();
-				offset += pageSize;
-			}
-		} while (count < page.getTotalNumberOfRecords() && !empty);
-
-		return results;
-	}
-	
-	public MergedDefectDataObj getMergedDefectForProject(String project, Long cid) throws CovRemoteServiceException_Exception {
-		MergedDefectFilterSpecDataObj filterSpec = new MergedDefectFilterSpecDataObj();
-		filterSpec.setMinCid(new Long(cid));
-		filterSpec.setMaxCid(new Long(cid));
-		
-		List<MergedDefectDataObj> defects = this.getMergedDefectsForProject(project, filterSpec);
-		if(defects.size() == 1) {
-			return defects.get(0);
-		}
-		
-		return null;
-	}
-
-	public List<UserDataObj> getAllUsers()
-			throws CovRemoteServiceException_Exception {
-		return this.getUsers(new UserFilterSpecDataObj());
-	}
-
-	public List<UserDataObj> getUsers(UserFilterSpecDataObj userFilterSpecDO)
-			throws CovRemoteServiceException_Exception {
-		if (configurationService == null || defectService == null) {
-			throw new CovRemoteServiceException_Exception(
-					"Services are uninitialized", null);
-		}
-
-		PageSpecDataObj pageSpec = new PageSpecDataObj();
-		final int pageSize = 256;
-		pageSpec.setPageSize(pageSize);
-
-		int count = 0;
-		int offset = 0;
-		UsersPageDataObj page = null;
-		List<UserDataObj> results = new ArrayList<UserDataObj>();
-		boolean empty = false;
-		do {
-			pageSpec.setStartIndex(offset);
-			page = this.configurationService.getUsers(userFilterSpecDO,
-					pageSpec);
-			results.addAll(page.getUsers());
-
-			empty = page.getUsers().size() == 0;
-			if(!empty) {
-				count += page.getUsers().size();
-				offset += pageSize;
-			}
-		} while (count < page.getTotalNumberOfRecords() && !empty);
-
-		return results;
-	}
-
-	public void updateDefect(Long cid, String pattern,
-			DefectStateSpecDataObj defectStateSpec)
-			throws CovRemoteServiceException_Exception {
-		List<Long> cids = new ArrayList<Long>();
-		cids.add(cid);
-
-		StreamDefectFilterSpecDataObj filterSpec = new StreamDefectFilterSpecDataObj();
-		filterSpec.setScopePattern(pattern);
-
-		List<StreamDefectDataObj> defects = this.getStreamDefects(cids,
-				filterSpec);
-		List<Long> iids = new ArrayList<Long>();
-		for (StreamDefectDataObj defect : defects) {
-			iids.add(defect.getId().getId());
-		}
-
-		updateDefectsHelper(iids, pattern, defectStateSpec);
-	}
-
-	private void updateDefectsHelper(List<Long> iids, String pattern,
-			DefectStateSpecDataObj defectStateSpec)
-			throws CovRemoteServiceException_Exception {
-		List<StreamDefectIdDataObj> streamDefectIds = new ArrayList<StreamDefectIdDataObj>();
-		for (Long iid : iids) {
-			StreamDefectIdDataObj streamDefectId = new StreamDefectIdDataObj();
-			streamDefectId.setId(iid);
-			streamDefectId.setVerNum(551);
-			streamDefectIds.add(streamDefectId);
-		}
-
-		this.defectService.updateStreamDefects(streamDefectIds, pattern,
-				defectStateSpec);
-	}
-
-	public List<StreamDataObj> getAllStreams()
-			throws CovRemoteServiceException_Exception {
-		return getStreams(new StreamFilterSpecDataObj());
-	}
-
-	public List<StreamDataObj> getStreams(StreamFilterSpecDataObj specData)
-			throws CovRemoteServiceException_Exception {
-		return this.configurationService.getStreams(specData);
-	}
-	
-	public ProjectDataObj getProject(String name) throws CovRemoteServiceException_Exception {
-		ProjectFilterSpecDataObj specData = new ProjectFilterSpecDataObj();
-		specData.setNamePattern(name);
-		
-		List<ProjectDataObj> projects = this.configurationService.getProjects(specData);
-		if(projects.size() == 1) {
-			return projects.get(0);
-		}
-		
-		return null;
-	}
-	
-	public List<ProjectDataObj> getProjects(ProjectFilterSpecDataObj specData) throws CovRemoteServiceException_Exception {
-		return this.configurationService.getProjects(specData);
-	}
-	
-	public void updateProject(String name, ProjectSpecDataObj specData) throws CovRemoteServiceException_Exception {
-		ProjectIdDataObj projectIdDataObj = new ProjectIdDataObj();
-		projectIdDataObj.setName(name);
-		this.configurationService.updateProject(projectIdDataObj, specData);
-	}
-	
-	public List<String> notify(List<String> userNames, String subject, String message) throws CovRemoteServiceException_Exception {
-		return this.configurationService.notify(userNames, subject, message);
-	}
-	
-	public String notify(String userName, String subject, String message) throws CovRemoteServiceException_Exception {
-		List<String> userNames = new ArrayList<String>();
-		userNames.add(userName);
-		List<String> recipients = this.configurationService.notify(userNames, subject, message);
-		if(recipients.size() == 1) {
-			return recipients.get(0);
-		}
-		
-		return "";
-	}
-	
-	public void createUser(UserSpecDataObj specData) throws CovRemoteServiceException_Exception {
-		this.configurationService.createUser(specData);
-	}
-	
-	public void createProject(String projectName, List<String> streamNames) throws CovRemoteServiceException_Exception {
-		ProjectSpecDataObj specData = new ProjectSpecDataObj();
-		specData.setName(projectName);
-		List<StreamIdDataObj> streams = specData.getStreams();
-		for(String streamName : streamNames) {
-			StreamIdDataObj streamId = new StreamIdDataObj();
-			streamId.setName(streamName);
-			streams.add(streamId);
-		}
-		createProject(specData);
-	}
-	
-	public void createProject(ProjectSpecDataObj specData) throws CovRemoteServiceException_Exception {
-		this.configurationService.createProject(specData);
-	}
-	
-	public void createStream(StreamSpecDataObj specData) throws CovRemoteServiceException_Exception {
-		this.configurationService.createStream(specData);
-	}
-	
-	public void deleteSnapshot(Long id) throws CovRemoteServiceException_Exception {
-		SnapshotIdDataObj snapshotIdDataObj = new SnapshotIdDataObj();
-		snapshotIdDataObj.setId(id);
-		this.configurationService.deleteSnapshot(snapshotIdDataObj);
-	}
-	
-	public List<SnapshotIdDataObj> getSnapshotsForStream(String name, SnapshotFilterSpecDataObj filterSpec) throws CovRemoteServiceException_Exception {
-		StreamIdDataObj streamId = new StreamIdDataObj();
-		streamId.setName(name);
-		return this.configurationService.getSnapshotsForStream(streamId, filterSpec);
-	}
-	
-	public static void main(String[] args) {
-		try {
-			CimProxy cimProxy = CimProxy.getInstance();
-			List<UserDataObj> users = cimProxy.getAllUsers();
-			for(UserDataObj user : users) {
-				System.out.println("user=" + user.getUsername());
-			}
-			System.out.println("done.");
-		} catch (CovRemoteServiceException_Exception e) {
-			e.printStackTrace();
-		}
-	}
-}
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.handler.Handler;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import com.coverity.ps.common.config.ConfigurationManager;
+import com.coverity.ws.v4.ComponentIdDataObj;
+import com.coverity.ws.v4.ComponentMetricsDataObj;
+import com.coverity.ws.v4.ConfigurationService;
+import com.coverity.ws.v4.ConfigurationServiceService;
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.DefectService;
+import com.coverity.ws.v4.DefectServiceService;
+import com.coverity.ws.v4.DefectStateSpecDataObj;
+import com.coverity.ws.v4.MergedDefectDataObj;
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+import com.coverity.ws.v4.MergedDefectsPageDataObj;
+import com.coverity.ws.v4.PageSpecDataObj;
+import com.coverity.ws.v4.ProjectDataObj;
+import com.coverity.ws.v4.ProjectFilterSpecDataObj;
+import com.coverity.ws.v4.ProjectIdDataObj;
+import com.coverity.ws.v4.ProjectSpecDataObj;
+import com.coverity.ws.v4.SnapshotFilterSpecDataObj;
+import com.coverity.ws.v4.SnapshotIdDataObj;
+import com.coverity.ws.v4.StreamDataObj;
+import com.coverity.ws.v4.StreamDefectDataObj;
+import com.coverity.ws.v4.StreamDefectFilterSpecDataObj;
+import com.coverity.ws.v4.StreamDefectIdDataObj;
+import com.coverity.ws.v4.StreamFilterSpecDataObj;
+import com.coverity.ws.v4.StreamIdDataObj;
+import com.coverity.ws.v4.StreamSpecDataObj;
+import com.coverity.ws.v4.UserDataObj;
+import com.coverity.ws.v4.UserFilterSpecDataObj;
+import com.coverity.ws.v4.UserSpecDataObj;
+import com.coverity.ws.v4.UsersPageDataObj;
+
+/**
+ * Java wrapper around the CIM SOAP APIs
+ */
+public class CimProxy {
+	private static final int MERGED_DEFECT_PAGE_SIZE = 2500;
+	private static final int USER_PAGE_SIZE = 256;
+	// response size of a call that failed before a response was received
+	private static final long[] NO_TRANSFER = { -1, -1 };
+	private static CimProxy instance;
+	private String user;
+	private String password;
+	private String address;
+	private int port;
+	private int fetchThreads;
+	private int updateBatchSize;
+	private int portPoolSize;
+	private boolean cidPaging;
+	private PageSizer mergedDefectPageSizer;
+	private PageSizer userPageSizer;
+	private ConcurrencyLimiter limiter;
+	private boolean gzipRequests;
+	private boolean gzipResponses;
+	private final TransferStats transferStats = new TransferStats();
+	private TopologyCatalog topologyCatalog;
+	private final SingleFlight<List<ProjectDataObj>> projectFlights = new SingleFlight<List<ProjectDataObj>>();
+	private final SingleFlight<List<StreamDataObj>> streamFlights = new SingleFlight<List<StreamDataObj>>();
+	private final SingleFlight<List<UserDataObj>> userFlights = new SingleFlight<List<UserDataObj>>();
+	private final SingleFlight<List<SnapshotIdDataObj>> snapshotFlights = new SingleFlight<List<SnapshotIdDataObj>>();
+	private StreamingDefectClient streamingClient;
+	private ExecutorService fetchExecutor;
+	private int asyncThreads;
+	private ExecutorService asyncExecutor;
+	private ServicePortPool<ConfigurationService> configurationServicePool;
+	private ServicePortPool<DefectService> defectServicePool;
+
+	/**
+	 * A call made with a pooled configuration service port
+	 */
+	private interface ConfigurationServiceCall<T> {
+		public T call(ConfigurationService configurationService)
+				throws CovRemoteServiceException_Exception;
+	}
+
+	/**
+	 * Streams one page of merged defects of a fixed scope to a handler and
+	 * returns the total number of records
+	 */
+	private interface StreamingMergedDefectQuery {
+		public int fetch(MergedDefectFilterSpecDataObj filterSpec,
+				PageSpecDataObj pageSpec,
+				DefectHandler<MergedDefectDataObj> handler)
+				throws CovRemoteServiceException_Exception;
+	}
+
+	/**
+	 * A call made with a pooled defect service port
+	 */
+	private interface DefectServiceCall<T> {
+		public T call(DefectService defectService)
+				throws CovRemoteServiceException_Exception;
+	}
+
+	private CimProxy() {
+		this.user = ConfigurationManager.getInstance().getUser();
+		this.password = ConfigurationManager.getInstance().getPassword();
+		this.address = ConfigurationManager.getInstance().getAddress();
+		this.port = ConfigurationManager.getInstance().getPort();
+		this.fetchThreads = Math.max(1, ConfigurationManager.getInstance().getFetchThreads());
+		this.asyncThreads = Math.max(1, ConfigurationManager.getInstance().getAsyncThreads());
+		this.updateBatchSize = Math.max(1, ConfigurationManager.getInstance().getUpdateBatchSize());
+		this.portPoolSize = Math.max(1, ConfigurationManager.getInstance().getPortPoolSize());
+		this.cidPaging = "cid".equalsIgnoreCase(ConfigurationManager.getInstance().getPagingMode());
+		// ports, pools and caches are kept when the configuration is reloaded
+		ConfigurationManager.addListener(new ConfigurationManager.Listener() {
+			public void configurationChanged(ConfigurationManager previous,
+					ConfigurationManager current) {
+				if (!current.getAddress().equals(address) || current.getPort() != port
+						|| !current.getUser().equals(user)
+						|| !current.getPassword().equals(password)) {
+					System.err.println("CIM connection settings changed; they take effect after a restart");
+				}
+			}
+		});
+		int topologyCacheTtl = ConfigurationManager.getInstance().getTopologyCacheTtl();
+		if (topologyCacheTtl > 0) {
+			this.topologyCatalog = new TopologyCatalog(this, topologyCacheTtl * 1000L);
+		}
+		this.mergedDefectPageSizer = createPageSizer(MERGED_DEFECT_PAGE_SIZE);
+		this.userPageSizer = createPageSizer(USER_PAGE_SIZE);
+		this.limiter = new ConcurrencyLimiter(this.fetchThreads, Math.max(1,
+				ConfigurationManager.getInstance().getConcurrencyLimitMax()),
+				ConfigurationManager.getInstance().getConcurrencyLatencyTolerance() / 100.0);
+		registerGauges();
+		String compression = ConfigurationManager.getInstance().getHttpCompression();
+		this.gzipResponses = !"none".equalsIgnoreCase(compression);
+		this.gzipRequests = "both".equalsIgnoreCase(compression);
+
+		// the JDK keeps idle keep-alive connections per host; the cache size
+		// is read once, before the first connection is made
+		if (System.getProperty("http.maxConnections") == null) {
+			System.setProperty("http.maxConnections", String.valueOf(Math.max(1,
+					ConfigurationManager.getInstance().getHttpMaxConnections())));
+		}
+
+		try {
+			// build URL
+			StringBuilder commonUrl = new StringBuilder("http://");
+			commonUrl.append(this.address);
+			if (this.port > 0) {
+				commonUrl.append(":" + this.port);
+			}
+			commonUrl.append("/ws/v4");
+
+			// create configuration and defect service instances; each reads
+			// its WSDL, so both are created at the same time
+			final URL configurationWsdl = getWsdlLocation(commonUrl.toString(),
+					"configurationservice");
+			final URL defectWsdl = getWsdlLocation(commonUrl.toString(),
+					"defectservice");
+			FutureTask<DefectServiceService> defectServiceTask = new FutureTask<DefectServiceService>(
+					new Callable<DefectServiceService>() {
+						public DefectServiceService call() {
+							return new DefectServiceService(defectWsdl, new QName(
+									"http://ws.coverity.com/v4", "DefectServiceService"));
+						}
+					});
+			Thread defectServiceThread = new Thread(defectServiceTask, "cim-wsdl");
+			defectServiceThread.setDaemon(true);
+			defectServiceThread.start();
+			ConfigurationServiceService configurationServiceService = new ConfigurationServiceService(
+					configurationWsdl, new QName("http://ws.coverity.com/v4",
+							"ConfigurationServiceService"));
+			DefectServiceService defectServiceService = waitFor(defectServiceTask);
+			if ("true".equalsIgnoreCase(ConfigurationManager.getInstance().getStreamingReads())) {
+				this.streamingClient = new StreamingDefectClient(new URL(
+						commonUrl.toString() + "/defectservice"), this.user,
+						this.password, this.mergedDefectPageSizer, this.limiter,
+						this.gzipRequests, this.gzipResponses, this.transferStats);
+			}
+
+			// create pooled ports, each with its own handler chain
+			List<ConfigurationService> configurationServices = new ArrayList<ConfigurationService>();
+			List<DefectService> defectServices = new ArrayList<DefectService>();
+			for (int i = 0; i < this.portPoolSize; i++) {
+				ConfigurationService configurationService = configurationServiceService
+						.getConfigurationServicePort();
+				setHandlerChain((BindingProvider) configurationService);
+				setRequestHeaders((BindingProvider) configurationService);
+				setEndpointAddress((BindingProvider) configurationService,
+						configurationWsdl, commonUrl + "/configurationservice");
+				configurationServices.add(configurationService);
+
+				DefectService defectService = defectServiceService
+						.getDefectServicePort();
+				setHandlerChain((BindingProvider) defectService);
+				setRequestHeaders((BindingProvider) defectService);
+				setEndpointAddress((BindingProvider) defectService,
+						defectWsdl, commonUrl + "/defectservice");
+				defectServices.add(defectService);
+			}
+			this.configurationServicePool = new ServicePortPool<ConfigurationService>(
+					configurationServices);
+			this.defectServicePool = new ServicePortPool<DefectService>(
+					defectServices);
+
+		} catch (SOAPFaultException e) {
+			System.err.println(e);
+		} catch (WebServiceException e) {
+			System.err.println(e);
+		} catch (MalformedURLException e) {
+			System.err.println(e);
+		} catch (CovRemoteServiceException_Exception e) {
+			System.err.println(e);
+		}
+	}
+
+	/**
+	 * Returns the location of a service's WSDL: a local copy from the
+	 * wsdl-dir directory or bundled in the jar under wsdl/ if there is one,
+	 * the CIM otherwise
+	 */
+	private static URL getWsdlLocation(String commonUrl, String service)
+			throws MalformedURLException {
+		String wsdlDir = ConfigurationManager.getInstance().getWsdlDir();
+		if (wsdlDir != null) {
+			File wsdlFile = new File(wsdlDir, service + ".wsdl");
+			if (wsdlFile.isFile()) {
+				return wsdlFile.toURI().toURL();
+			}
+			URL bundled = CimProxy.class.getResource("/wsdl/" + service + ".wsdl");
+			if (bundled != null) {
+				return bundled;
+			}
+		}
+
+		return new URL(commonUrl + "/" + service + "?wsdl");
+	}
+
+	/**
+	 * Points a port read from a local WSDL at the configured CIM
+	 */
+	private static void setEndpointAddress(BindingProvider bindingProvider,
+			URL wsdl, String address) {
+		if (!"http".equals(wsdl.getProtocol())) {
+			bindingProvider.getRequestContext().put(
+					BindingProvider.ENDPOINT_ADDRESS_PROPERTY, address);
+		}
+	}
+
+	private static PageSizer createPageSizer(int initialPageSize) {
+		ConfigurationManager config = ConfigurationManager.getInstance();
+		return new PageSizer(initialPageSize, config.getPageSizeMin(),
+				config.getPageSizeMax(), config.getPageTargetTime(),
+				config.getPageMaxKb() * 1024L);
+	}
+
+	public static synchronized CimProxy getInstance() {
+		if (instance == null) {
+			instance = new CimProxy();
+			if ("true".equalsIgnoreCase(ConfigurationManager.getInstance().getWarmUp())) {
+				instance.warmUp();
+			}
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Starts loading the topology catalog and the user directory in the
+	 * background; lookups made before they are loaded wait for them
+	 */
+	public void warmUp() {
+		if (this.topologyCatalog != null) {
+			submitAsync(new Callable<Void>() {
+				public Void call() throws Exception {
+					topologyCatalog.refresh();
+					return null;
+				}
+			});
+		}
+		submitAsync(new Callable<List<UserDataObj>>() {
+			public List<UserDataObj> call() throws Exception {
+				return UserDirectory.getInstance().getAllUsers();
+			}
+		});
+	}
+
+	/**
+	 * Catalog of all projects and streams, or null if topology-cache-ttl is 0
+	 */
+	public TopologyCatalog getTopologyCatalog() {
+		return this.topologyCatalog;
+	}
+
+	private static boolean isPlainName(String pattern) {
+		return pattern != null && pattern.indexOf('*') < 0
+				&& pattern.indexOf('?') < 0;
+	}
+
+	/**
+	 * Asks for gzip compressed responses and, if configured, compresses
+	 * requests
+	 */
+	private void setRequestHeaders(BindingProvider bindingProvider) {
+		Map<String, List<String>> headers = new HashMap<String, List<String>>();
+		if (this.gzipResponses) {
+			headers.put("Accept-Encoding", Collections.singletonList("gzip"));
+		}
+		if (this.gzipRequests) {
+			headers.put("Content-Encoding", Collections.singletonList("gzip"));
+		}
+		bindingProvider.getRequestContext().put(
+				MessageContext.HTTP_REQUEST_HEADERS, headers);
+	}
+
+	/**
+	 * Records the size of the last response received by a port. The decoded
+	 * size is measured by the ResponseSizeHandler of the port; the wire size
+	 * is only known if the response has a Content-Length or is not
+	 * compressed.
+	 *
+	 * @return bytes on the wire and after decompression, -1 where unknown
+	 */
+	@SuppressWarnings("unchecked")
+	private long[] recordTransfer(String channel, BindingProvider bindingProvider) {
+		Map<String, Object> responseContext = bindingProvider.getResponseContext();
+		Map<String, List<String>> headers = (Map<String, List<String>>) responseContext
+				.get(MessageContext.HTTP_RESPONSE_HEADERS);
+		Long decoded = (Long) responseContext.get(ResponseSizeHandler.DECODED_BYTES);
+		long decodedBytes = decoded != null ? decoded.longValue() : -1;
+		long wireBytes = ResponseSizeHandler.getContentLength(headers);
+		if (wireBytes < 0 && !ResponseSizeHandler.isCompressed(headers)) {
+			wireBytes = decodedBytes;
+		}
+
+		this.transferStats.record(channel, wireBytes, decodedBytes);
+		return new long[] { wireBytes, decodedBytes };
+	}
+
+	/**
+	 * Response sizes of the calls made so far, on the wire and decoded
+	 */
+	public TransferStats getTransferStats() {
+		return this.transferStats;
+	}
+
+	/**
+	 * Publishes the state of the limiter, the page sizers, the coalesced calls
+	 * and the transfers with the metrics registry
+	 */
+	private void registerGauges() {
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		metrics.registerGauge("cim_concurrency_limit", "Current limit on concurrent CIM calls",
+				new MetricsRegistry.Gauge() {
+					public double getValue() {
+						return limiter.getLimit();
+					}
+				});
+		metrics.registerGauge("cim_calls_in_flight", "CIM calls in flight",
+				new MetricsRegistry.Gauge() {
+					public double getValue() {
+						return limiter.getInFlight();
+					}
+				});
+		metrics.registerGauge("cim_calls_queued", "CIM calls waiting for the limiter",
+				new MetricsRegistry.Gauge() {
+					public double getValue() {
+						return limiter.getQueueDepth();
+					}
+				});
+		metrics.registerGauge("cim_shared_calls", "Calls that shared the result of an identical call in flight",
+				new MetricsRegistry.Gauge() {
+					public double getValue() {
+						return getSharedCalls();
+					}
+				});
+		metrics.registerGauge("cim_merged_defect_page_size", "Current merged defect page size",
+				new MetricsRegistry.Gauge() {
+					public double getValue() {
+						return mergedDefectPageSizer.getPageSize();
+					}
+				});
+		metrics.registerGauge("cim_user_page_size", "Current user page size",
+				new MetricsRegistry.Gauge() {
+					public double getValue() {
+						return userPageSizer.getPageSize();
+					}
+				});
+		for (final String channel : new String[] { "configurationservice",
+				"defectservice", "streaming" }) {
+			metrics.registerGauge("cim_" + channel + "_wire_bytes",
+					"Measured response bytes on the wire of the " + channel + " channel",
+					new MetricsRegistry.Gauge() {
+						public double getValue() {
+							return transferStats.getWireBytes(channel);
+						}
+					});
+			metrics.registerGauge("cim_" + channel + "_decoded_bytes",
+					"Measured response bytes after decompression of the " + channel + " channel",
+					new MetricsRegistry.Gauge() {
+						public double getValue() {
+							return transferStats.getDecodedBytes(channel);
+						}
+					});
+		}
+	}
+
+	/**
+	 * Reports the cost of a merged defect or user page to its page sizer
+	 *
+	 * @param bytes response size after decompression, or -1 if unknown
+	 */
+	private void recordPageCost(Object result, long bytes, long elapsedMillis) {
+		if (result instanceof MergedDefectsPageDataObj) {
+			this.mergedDefectPageSizer.record(((MergedDefectsPageDataObj) result)
+					.getMergedDefects().size(), bytes, elapsedMillis);
+		} else if (result instanceof UsersPageDataObj) {
+			this.userPageSizer.record(((UsersPageDataObj) result).getUsers()
+					.size(), bytes, elapsedMillis);
+		}
+	}
+
+	/**
+	 * Number of records in the result of a call, for the metrics registry
+	 */
+	private static int countRecords(Object result) {
+		if (result instanceof List<?>) {
+			return ((List<?>) result).size();
+		} else if (result instanceof MergedDefectsPageDataObj) {
+			return ((MergedDefectsPageDataObj) result).getMergedDefects().size();
+		} else if (result instanceof UsersPageDataObj) {
+			return ((UsersPageDataObj) result).getUsers().size();
+		}
+		return 0;
+	}
+
+	private void setHandlerChain(BindingProvider bindingProvider) {
+		Handler authenticationHandler;
+		if ("xwss".equalsIgnoreCase(ConfigurationManager.getInstance().getWssHandler())) {
+			authenticationHandler = new ClientAuthenticationHandlerWSS(
+					this.user, this.password);
+		} else {
+			authenticationHandler = new PrecomputedAuthenticationHandler(
+					this.user, this.password);
+		}
+		bindingProvider.getBinding().setHandlerChain(
+				new ArrayList<Handler>(Arrays.asList(authenticationHandler,
+						new ResponseSizeHandler())));
+	}
+
+	private void checkInitialized() throws CovRemoteServiceException_Exception {
+		if (configurationServicePool == null || defectServicePool == null) {
+			throw new CovRemoteServiceException_Exception(
+					"Services are uninitialized", null);
+		}
+	}
+
+	private <T> T callConfigurationService(String operation, ConfigurationServiceCall<T> call)
+			throws CovRemoteServiceException_Exception {
+		return callConfigurationService(operation, -1, call);
+	}
+
+	/**
+	 * Makes a call and records it with the metrics registry; pageOffset is
+	 * the start index of the requested page, -1 if the call is not paged
+	 */
+	private <T> T callConfigurationService(String operation, int pageOffset,
+			ConfigurationServiceCall<T> call) throws CovRemoteServiceException_Exception {
+		checkInitialized();
+		this.limiter.acquire();
+		long start = System.currentTimeMillis();
+		Object event = FlightEvents.begin(FlightEvents.CIM_CALL);
+		boolean success = false;
+		boolean completed = false;
+		T result = null;
+		long[] transfer = NO_TRANSFER;
+		try {
+			ConfigurationService configurationService = borrow(this.configurationServicePool);
+			try {
+				// the page sizers only see the call itself, not the waits for
+				// the limiter and a port
+				long callStart = System.currentTimeMillis();
+				result = call.call(configurationService);
+				long callMillis = System.currentTimeMillis() - callStart;
+				success = true;
+				transfer = recordTransfer("configurationservice", (BindingProvider) configurationService);
+				recordPageCost(result, transfer[1], callMillis);
+				completed = true;
+				return result;
+			} catch (CovRemoteServiceException_Exception e) {
+				// a service exception still means the server is responsive
+				success = true;
+				throw e;
+			} finally {
+				this.configurationServicePool.release(configurationService);
+			}
+		} finally {
+			long elapsed = System.currentTimeMillis() - start;
+			this.limiter.release(elapsed, success);
+			int records = countRecords(result);
+			MetricsRegistry.getInstance().recordCall(operation, pageOffset,
+					records, transfer[0], transfer[1], elapsed, !completed);
+			FlightEvents.commit(event, operation, pageOffset, records, transfer[0],
+					transfer[1], !completed);
+		}
+	}
+
+	private <T> T callDefectService(String operation, DefectServiceCall<T> call)
+			throws CovRemoteServiceException_Exception {
+		return callDefectService(operation, -1, call);
+	}
+
+	/**
+	 * Makes a call and records it with the metrics registry; pageOffset is
+	 * the start index of the requested page, -1 if the call is not paged
+	 */
+	private <T> T callDefectService(String operation, int pageOffset,
+			DefectServiceCall<T> call) throws CovRemoteServiceException_Exception {
+		checkInitialized();
+		this.limiter.acquire();
+		long start = System.currentTimeMillis();
+		Object event = FlightEvents.begin(FlightEvents.CIM_CALL);
+		boolean success = false;
+		boolean completed = false;
+		T result = null;
+		long[] transfer = NO_TRANSFER;
+		try {
+			DefectService defectService = borrow(this.defectServicePool);
+			try {
+				// the page sizers only see the call itself, not the waits for
+				// the limiter and a port
+				long callStart = System.currentTimeMillis();
+				result = call.call(defectService);
+				long callMillis = System.currentTimeMillis() - callStart;
+				success = true;
+				transfer = recordTransfer("defectservice", (BindingProvider) defectService);
+				recordPageCost(result, transfer[1], callMillis);
+				completed = true;
+				return result;
+			} catch (CovRemoteServiceException_Exception e) {
+				// a service exception still means the server is responsive
+				success = true;
+				throw e;
+			} finally {
+				this.defectServicePool.release(defectService);
+			}
+		} finally {
+			long elapsed = System.currentTimeMillis() - start;
+			this.limiter.release(elapsed, success);
+			int records = countRecords(result);
+			MetricsRegistry.getInstance().recordCall(operation, pageOffset,
+					records, transfer[0], transfer[1], elapsed, !completed);
+			FlightEvents.commit(event, operation, pageOffset, records, transfer[0],
+					transfer[1], !completed);
+		}
+	}
+
+	/**
+	 * Number of calls that shared the result of an identical call in flight
+	 * instead of making their own request
+	 */
+	public long getSharedCalls() {
+		return this.projectFlights.getSharedCalls()
+				+ this.streamFlights.getSharedCalls()
+				+ this.userFlights.getSharedCalls()
+				+ this.snapshotFlights.getSharedCalls();
+	}
+
+	/**
+	 * Limiter shared by all calls to the CIM; its limit, calls in flight and
+	 * queue depth can be reported as metrics
+	 */
+	public ConcurrencyLimiter getConcurrencyLimiter() {
+		return this.limiter;
+	}
+
+	private static <T> T borrow(ServicePortPool<T> pool)
+			throws CovRemoteServiceException_Exception {
+		try {
+			return pool.borrow();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CovRemoteServiceException_Exception(
+					"Interrupted while waiting for a service port", null, e);
+		}
+	}
+
+	public List<StreamDefectDataObj> getAllStreamDefects(List<Long> cids,
+			String scope) throws CovRemoteServiceException_Exception {
+		StreamDefectFilterSpecDataObj filterSpec = new StreamDefectFilterSpecDataObj();
+		filterSpec.setScopePattern(scope);
+		filterSpec.setIncludeHistory(true);
+		filterSpec.setIncludeDefectInstances(true);
+		return getStreamDefects(cids, filterSpec);
+	}
+
+	public List<StreamDefectDataObj> getStreamDefects(final List<Long> cids,
+			final StreamDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		return callDefectService("getStreamDefects", new DefectServiceCall<List<StreamDefectDataObj>>() {
+			public List<StreamDefectDataObj> call(DefectService defectService)
+					throws CovRemoteServiceException_Exception {
+				return defectService.getStreamDefects(cids, filterSpec);
+			}
+		});
+	}
+
+	public List<MergedDefectDataObj> getAllMergedDefectsForStreams(
+			List<String> names) throws CovRemoteServiceException_Exception {
+		return getMergedDefectsForStreams(names,
+				new MergedDefectFilterSpecDataObj());
+	}
+
+	public List<MergedDefectDataObj> getMergedDefectsForStreams(
+			List<String> names, MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		return getMergedDefects(DefectCache.streamsScope(names),
+				createStreamsQuery(names), filterSpec);
+	}
+
+	/**
+	 * Returns an iterator that fetches the merged defects of the given
+	 * streams one page at a time as it is consumed
+	 */
+	public MergedDefectIterator iterateMergedDefectsForStreams(
+			List<String> names, MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		return createIterator(DefectCache.streamsScope(names),
+				createStreamsQuery(names), filterSpec);
+	}
+
+	private MergedDefectQuery createStreamsQuery(List<String> names) {
+		final List<StreamIdDataObj> streamIds = new ArrayList<StreamIdDataObj>();
+		for (String name : names) {
+			StreamIdDataObj streamId = new StreamIdDataObj();
+			streamId.setName(name);
+			streamIds.add(streamId);
+		}
+
+		return new MergedDefectQuery() {
+			public MergedDefectsPageDataObj fetch(
+					final MergedDefectFilterSpecDataObj filterSpec,
+					final PageSpecDataObj pageSpec)
+					throws CovRemoteServiceException_Exception {
+				return callDefectService("getMergedDefectsForStreams", pageSpec.getStartIndex(),
+						new DefectServiceCall<MergedDefectsPageDataObj>() {
+					public MergedDefectsPageDataObj call(DefectService defectService)
+							throws CovRemoteServiceException_Exception {
+						return defectService.getMergedDefectsForStreams(
+								streamIds, filterSpec, pageSpec);
+					}
+				});
+			}
+		};
+	}
+
+	public List<MergedDefectDataObj> getAllMergedDefectsForProject(
+			String project) throws CovRemoteServiceException_Exception {
+		return getMergedDefectsForProject(project,
+				new MergedDefectFilterSpecDataObj());
+	}
+	
+	public List<ComponentMetricsDataObj> getComponentMetricsForProject(String project, List<String> components) throws CovRemoteServiceException_Exception {
+		final ProjectIdDataObj projectIdDataObj  = new ProjectIdDataObj();
+		projectIdDataObj.setName(project);
+		
+		final List<ComponentIdDataObj> componentObjs = new ArrayList<ComponentIdDataObj>();
+		for(String component : components) {
+			ComponentIdDataObj dataObj = new ComponentIdDataObj();
+			dataObj.setName(component);
+			componentObjs.add(dataObj);
+		}
+		
+		return callDefectService("getComponentMetricsForProject", new DefectServiceCall<List<ComponentMetricsDataObj>>() {
+			public List<ComponentMetricsDataObj> call(DefectService defectService)
+					throws CovRemoteServiceException_Exception {
+				return defectService.getComponentMetricsForProject(projectIdDataObj, componentObjs);
+			}
+		});
+	}
+
+	public List<MergedDefectDataObj> getMergedDefectsForProject(String project,
+			MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		return getMergedDefects(DefectCache.projectScope(project),
+				createProjectQuery(project), filterSpec);
+	}
+
+	/**
+	 * Returns an iterator that fetches the merged defects of the given
+	 * project one page at a time as it is consumed
+	 */
+	public MergedDefectIterator iterateMergedDefectsForProject(String project,
+			MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		return createIterator(DefectCache.projectScope(project),
+				createProjectQuery(project), filterSpec);
+	}
+
+	/**
+	 * Splits the CIDs of the project's merged defects matching the filter
+	 * into at most the given number of contiguous CID ranges. Each returned
+	 * filter spec is a copy of the given one restricted to one range, so the
+	 * shards can be fetched independently (and concurrently).
+	 */
+	public List<MergedDefectFilterSpecDataObj> splitCidRange(String project,
+			MergedDefectFilterSpecDataObj filterSpec, int shards)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		return splitCidRange(createProjectQuery(project), filterSpec, shards);
+	}
+
+	/**
+	 * Starts a query over the project's merged defects whose conditions are
+	 * applied by the CIM where possible
+	 */
+	public DefectQuery queryMergedDefectsForProject(String project) {
+		return new DefectQuery(this, project, null);
+	}
+
+	/**
+	 * Starts a query over the streams' merged defects whose conditions are
+	 * applied by the CIM where possible
+	 */
+	public DefectQuery queryMergedDefectsForStreams(List<String> names) {
+		return new DefectQuery(this, null, names);
+	}
+
+	/**
+	 * Passes every merged defect of the project matching the filter to the
+	 * handler. With streaming-reads enabled the SOAP responses are decoded
+	 * one defect at a time; otherwise, or when the defect cache is enabled,
+	 * the defects are read through a MergedDefectIterator.
+	 */
+	public void forEachMergedDefectForProject(String project,
+			MergedDefectFilterSpecDataObj filterSpec,
+			DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		final ProjectIdDataObj projectId = new ProjectIdDataObj();
+		projectId.setName(project);
+		forEachMergedDefect(DefectCache.projectScope(project),
+				createProjectQuery(project), new StreamingMergedDefectQuery() {
+					public int fetch(MergedDefectFilterSpecDataObj filterSpec,
+							PageSpecDataObj pageSpec,
+							DefectHandler<MergedDefectDataObj> handler)
+							throws CovRemoteServiceException_Exception {
+						return streamingClient.getMergedDefectsForProject(
+								projectId, filterSpec, pageSpec, handler);
+					}
+				}, filterSpec, handler);
+	}
+
+	/**
+	 * Passes every merged defect of the streams matching the filter to the
+	 * handler; see forEachMergedDefectForProject
+	 */
+	public void forEachMergedDefectForStreams(List<String> names,
+			MergedDefectFilterSpecDataObj filterSpec,
+			DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		final List<StreamIdDataObj> streamIds = new ArrayList<StreamIdDataObj>();
+		for (String name : names) {
+			StreamIdDataObj streamId = new StreamIdDataObj();
+			streamId.setName(name);
+			streamIds.add(streamId);
+		}
+		forEachMergedDefect(DefectCache.streamsScope(names),
+				createStreamsQuery(names), new StreamingMergedDefectQuery() {
+					public int fetch(MergedDefectFilterSpecDataObj filterSpec,
+							PageSpecDataObj pageSpec,
+							DefectHandler<MergedDefectDataObj> handler)
+							throws CovRemoteServiceException_Exception {
+						return streamingClient.getMergedDefectsForStreams(
+								streamIds, filterSpec, pageSpec, handler);
+					}
+				}, filterSpec, handler);
+	}
+
+	/**
+	 * Passes the stream defects of the given CIDs to the handler, decoding
+	 * them one at a time when streaming-reads is enabled
+	 */
+	public void forEachStreamDefect(final List<Long> cids,
+			final StreamDefectFilterSpecDataObj filterSpec,
+			DefectHandler<StreamDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		if (this.streamingClient == null) {
+			for (StreamDefectDataObj defect : getStreamDefects(cids, filterSpec)) {
+				handler.handle(defect);
+			}
+			return;
+		}
+
+		this.streamingClient.getStreamDefects(cids, filterSpec, handler);
+	}
+
+	private void forEachMergedDefect(String scope, MergedDefectQuery query,
+			StreamingMergedDefectQuery streamingQuery,
+			MergedDefectFilterSpecDataObj filterSpec,
+			DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		if (this.streamingClient == null || DefectCache.getInstance().isEnabled()) {
+			MergedDefectIterator defects = createIterator(scope, query, filterSpec);
+			try {
+				while (defects.hasNext()) {
+					handler.handle(defects.next());
+				}
+			} catch (RuntimeException e) {
+				if (e.getCause() instanceof CovRemoteServiceException_Exception) {
+					throw (CovRemoteServiceException_Exception) e.getCause();
+				}
+				throw e;
+			} finally {
+				defects.close();
+			}
+			return;
+		}
+
+		streamMergedDefects(streamingQuery, filterSpec, handler);
+	}
+
+	/**
+	 * Pages through the merged defects with the streaming client, by offset
+	 * or by CID range depending on the paging mode
+	 */
+	private void streamMergedDefects(StreamingMergedDefectQuery query,
+			MergedDefectFilterSpecDataObj filterSpec,
+			final DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		final long[] lastCid = new long[1];
+		final int[] pageCount = new int[1];
+		DefectHandler<MergedDefectDataObj> tracker = new DefectHandler<MergedDefectDataObj>() {
+			public void handle(MergedDefectDataObj defect) {
+				lastCid[0] = defect.getCid();
+				pageCount[0]++;
+				handler.handle(defect);
+			}
+		};
+
+		int offset = 0;
+		int count = 0;
+		Long nextMinCid = null;
+		while (true) {
+			int pageSize = this.mergedDefectPageSizer.getPageSize();
+			pageCount[0] = 0;
+			if (this.cidPaging) {
+				// the total only counts what is left of the CID range
+				int remaining = query.fetch(FilterSpecs.withCidRange(filterSpec,
+						nextMinCid, null), CidRangePageFetcher.createPageSpec(
+						pageSize, true), tracker);
+				nextMinCid = lastCid[0] + 1;
+				if (pageCount[0] == 0 || pageCount[0] >= remaining) {
+					return;
+				}
+			} else {
+				int total = query.fetch(filterSpec, createPageSpec(offset,
+						pageSize), tracker);
+				// the server may return fewer records than requested
+				offset += pageCount[0];
+				count += pageCount[0];
+				if (pageCount[0] == 0 || count >= total) {
+					return;
+				}
+			}
+		}
+	}
+
+	private MergedDefectQuery createProjectQuery(String project) {
+		final ProjectIdDataObj projectId = new ProjectIdDataObj();
+		projectId.setName(project);
+
+		return new MergedDefectQuery() {
+			public MergedDefectsPageDataObj fetch(
+					final MergedDefectFilterSpecDataObj filterSpec,
+					final PageSpecDataObj pageSpec)
+					throws CovRemoteServiceException_Exception {
+				return callDefectService("getMergedDefectsForProject", pageSpec.getStartIndex(),
+						new DefectServiceCall<MergedDefectsPageDataObj>() {
+					public MergedDefectsPageDataObj call(DefectService defectService)
+							throws CovRemoteServiceException_Exception {
+						return defectService.getMergedDefectsForProject(
+								projectId, filterSpec, pageSpec);
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * Creates a page fetcher for the configured paging mode
+	 */
+	private MergedDefectPageFetcher createPageFetcher(
+			final MergedDefectQuery query,
+			final MergedDefectFilterSpecDataObj filterSpec) {
+		if (this.cidPaging) {
+			return new CidRangePageFetcher(query, filterSpec);
+		}
+
+		return new MergedDefectPageFetcher() {
+			public MergedDefectsPageDataObj fetch(PageSpecDataObj pageSpec)
+					throws CovRemoteServiceException_Exception {
+				return query.fetch(filterSpec, pageSpec);
+			}
+
+			public void close() {
+			}
+		};
+	}
+
+	/**
+	 * Fetches all merged defects of the query, through the defect cache if
+	 * it is enabled and a scope is given
+	 */
+	private List<MergedDefectDataObj> getMergedDefects(String scope,
+			MergedDefectQuery query, MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		DefectCache defectCache = DefectCache.getInstance();
+		boolean useCache = scope != null && defectCache.isEnabled();
+		if (useCache) {
+			List<MergedDefectDataObj> defects = defectCache.get(scope, filterSpec);
+			if (defects != null) {
+				return defects;
+			}
+		}
+
+		List<MergedDefectDataObj> defects;
+		if (this.cidPaging) {
+			defects = getMergedDefectsByCidRange(query, filterSpec);
+		} else {
+			defects = getMergedDefectPages(createPageFetcher(query, filterSpec));
+		}
+
+		if (useCache) {
+			defectCache.put(scope, filterSpec, defects);
+		}
+		return defects;
+	}
+
+	/**
+	 * Creates an iterator over the merged defects of the query, served from
+	 * the defect cache if it is enabled and has a usable entry, and stored in
+	 * it otherwise
+	 */
+	private MergedDefectIterator createIterator(String scope,
+			MergedDefectQuery query, MergedDefectFilterSpecDataObj filterSpec) {
+		MergedDefectPageFetcher fetcher = null;
+		DefectCache defectCache = DefectCache.getInstance();
+		if (defectCache.isEnabled()) {
+			fetcher = defectCache.getPageFetcher(scope, filterSpec);
+			if (fetcher == null) {
+				fetcher = defectCache.createCachingFetcher(scope, filterSpec,
+						createPageFetcher(query, filterSpec));
+			}
+		} else {
+			fetcher = createPageFetcher(query, filterSpec);
+		}
+
+		return new MergedDefectIterator(fetcher, getFetchExecutor(),
+				this.mergedDefectPageSizer);
+	}
+
+	/**
+	 * Fetches all merged defects by CID range. The CID space is split into
+	 * one shard per page that may be in flight; the shards are paged through
+	 * concurrently and concatenated in CID order.
+	 */
+	private List<MergedDefectDataObj> getMergedDefectsByCidRange(
+			final MergedDefectQuery query,
+			MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		List<MergedDefectPageFetcher> fetchers = new ArrayList<MergedDefectPageFetcher>();
+		for (MergedDefectFilterSpecDataObj shard : splitCidRange(query,
+				filterSpec, getFetchConcurrency())) {
+			fetchers.add(new CidRangePageFetcher(query, shard));
+		}
+
+		return fetchAllConcurrently(fetchers);
+	}
+
+	/**
+	 * Fetches all pages of each fetcher; the fetchers run concurrently and
+	 * their results are concatenated in order
+	 */
+	private List<MergedDefectDataObj> fetchAllConcurrently(
+			List<MergedDefectPageFetcher> fetchers)
+			throws CovRemoteServiceException_Exception {
+		if (fetchers.size() == 1) {
+			return fetchAllPages(fetchers.get(0), this.mergedDefectPageSizer);
+		}
+
+		final PageSizer pageSizer = this.mergedDefectPageSizer;
+		ExecutorService executor = getFetchExecutor();
+		List<Future<List<MergedDefectDataObj>>> pending = new ArrayList<Future<List<MergedDefectDataObj>>>();
+		try {
+			for (final MergedDefectPageFetcher fetcher : fetchers) {
+				pending.add(executor.submit(new Callable<List<MergedDefectDataObj>>() {
+					public List<MergedDefectDataObj> call() throws Exception {
+						return fetchAllPages(fetcher, pageSizer);
+					}
+				}));
+			}
+
+			List<MergedDefectDataObj> results = new ArrayList<MergedDefectDataObj>();
+			for (Future<List<MergedDefectDataObj>> future : pending) {
+				results.addAll(waitFor(future));
+			}
+			return results;
+		} finally {
+			for (Future<List<MergedDefectDataObj>> future : pending) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private List<MergedDefectFilterSpecDataObj> splitCidRange(
+			MergedDefectQuery query, MergedDefectFilterSpecDataObj filterSpec,
+			int shards) throws CovRemoteServiceException_Exception {
+		List<MergedDefectFilterSpecDataObj> results = new ArrayList<MergedDefectFilterSpecDataObj>();
+
+		// the lowest and highest matching CIDs bound the ranges
+		List<MergedDefectDataObj> lowest = query.fetch(filterSpec,
+				CidRangePageFetcher.createPageSpec(1, true)).getMergedDefects();
+		if (lowest.isEmpty()) {
+			return results;
+		}
+		List<MergedDefectDataObj> highest = query.fetch(filterSpec,
+				CidRangePageFetcher.createPageSpec(1, false)).getMergedDefects();
+		long minCid = lowest.get(0).getCid();
+		long maxCid = highest.isEmpty() ? minCid : highest.get(0).getCid();
+
+		long width = (maxCid - minCid) / Math.max(1, shards) + 1;
+		for (long start = minCid; start <= maxCid; start += width) {
+			long end = Math.min(start + width - 1, maxCid);
+			results.add(FilterSpecs.withCidRange(filterSpec, start, end));
+		}
+
+		return results;
+	}
+
+	/**
+	 * Fetches pages one after the other until an empty page is returned or
+	 * the total number of records is reached. The server may return fewer
+	 * records than requested, so the next page starts after the records
+	 * actually returned.
+	 */
+	static List<MergedDefectDataObj> fetchAllPages(
+			MergedDefectPageFetcher fetcher, PageSizer pageSizer)
+			throws CovRemoteServiceException_Exception {
+		List<MergedDefectDataObj> results = new ArrayList<MergedDefectDataObj>();
+		int offset = 0;
+		while (true) {
+			int pageSize = pageSizer.getPageSize();
+			MergedDefectsPageDataObj page = fetcher.fetch(createPageSpec(offset,
+					pageSize));
+			results.addAll(page.getMergedDefects());
+			offset += page.getMergedDefects().size();
+			if (page.getMergedDefects().isEmpty()
+					|| (page.getTotalNumberOfRecords() != null && results.size() >= page
+							.getTotalNumberOfRecords().intValue())) {
+				return results;
+			}
+		}
+	}
+
+	/**
+	 * Fetches all pages of merged defects. The first page is fetched on the
+	 * calling thread to learn the total number of records, the remaining page
+	 * offsets are fetched concurrently (see getFetchConcurrency()) and
+	 * reassembled in offset order. Each page is sized when it is submitted,
+	 * so later pages pick up what the earlier ones measured. A page the
+	 * server returns short of its requested size, before the end of the
+	 * result set, is completed on the calling thread.
+	 */
+	private List<MergedDefectDataObj> getMergedDefectPages(
+			final MergedDefectPageFetcher fetcher)
+			throws CovRemoteServiceException_Exception {
+		int pageSize = this.mergedDefectPageSizer.getPageSize();
+		MergedDefectsPageDataObj page = fetcher.fetch(createPageSpec(0, pageSize));
+		List<MergedDefectDataObj> results = new ArrayList<MergedDefectDataObj>(
+				page.getMergedDefects());
+
+		final int total = page.getTotalNumberOfRecords() != null ? page
+				.getTotalNumberOfRecords().intValue() : 0;
+		if (page.getMergedDefects().size() == 0 || results.size() >= total) {
+			return results;
+		}
+
+		ExecutorService executor = getFetchExecutor();
+		LinkedList<Future<MergedDefectsPageDataObj>> pending = new LinkedList<Future<MergedDefectsPageDataObj>>();
+		LinkedList<PageSpecDataObj> pendingSpecs = new LinkedList<PageSpecDataObj>();
+		int window = getFetchConcurrency();
+		int offset = results.size();
+		try {
+			while (offset < total || !pending.isEmpty()) {
+				// keep the window of in-flight pages full
+				while (offset < total && pending.size() < window) {
+					pageSize = this.mergedDefectPageSizer.getPageSize();
+					final PageSpecDataObj pageSpec = createPageSpec(offset, pageSize);
+					pending.add(executor.submit(new Callable<MergedDefectsPageDataObj>() {
+						public MergedDefectsPageDataObj call() throws Exception {
+							return fetcher.fetch(pageSpec);
+						}
+					}));
+					pendingSpecs.add(pageSpec);
+					offset += pageSize;
+				}
+
+				PageSpecDataObj pageSpec = pendingSpecs.removeFirst();
+				page = waitFor(pending.removeFirst());
+				int fetched = page.getMergedDefects().size();
+				if (fetched == 0) {
+					break;
+				}
+				results.addAll(page.getMergedDefects());
+
+				// fill the gap a short page leaves before the next one
+				while (fetched < pageSpec.getPageSize()
+						&& pageSpec.getStartIndex() + fetched < total) {
+					page = fetcher.fetch(createPageSpec(pageSpec.getStartIndex()
+							+ fetched, pageSpec.getPageSize() - fetched));
+					if (page.getMergedDefects().isEmpty()) {
+						break;
+					}
+					results.addAll(page.getMergedDefects());
+					fetched += page.getMergedDefects().size();
+				}
+			}
+		} finally {
+			for (Future<MergedDefectsPageDataObj> future : pending) {
+				future.cancel(true);
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Waits for the result of a fetch or of an asynchronous call, rethrowing
+	 * a remote error as such
+	 */
+	public static <T> T waitFor(Future<T> future)
+			throws CovRemoteServiceException_Exception {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CovRemoteServiceException_Exception(
+					"Interrupted while fetching defects", null, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof CovRemoteServiceException_Exception) {
+				throw (CovRemoteServiceException_Exception) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	static PageSpecDataObj createPageSpec(int offset, int pageSize) {
+		PageSpecDataObj pageSpec = new PageSpecDataObj();
+		pageSpec.setStartIndex(offset);
+		pageSpec.setPageSize(pageSize);
+		return pageSpec;
+	}
+
+	/**
+	 * Runs a call on the asynchronous executor. Calls started this way
+	 * overlap, so independent CIM requests take as long as the slowest one;
+	 * the concurrency limiter still bounds what reaches the server.
+	 */
+	public synchronized <T> Future<T> submitAsync(Callable<T> call) {
+		if (this.asyncExecutor == null) {
+			final AtomicInteger threadCount = new AtomicInteger();
+			this.asyncExecutor = Executors.newFixedThreadPool(this.asyncThreads,
+					new ThreadFactory() {
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "cim-async-"
+									+ threadCount.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+
+		return this.asyncExecutor.submit(call);
+	}
+
+	public Future<ProjectDataObj> getProjectAsync(final String name) {
+		return submitAsync(new Callable<ProjectDataObj>() {
+			public ProjectDataObj call() throws Exception {
+				return getProject(name);
+			}
+		});
+	}
+
+	public Future<List<ProjectDataObj>> getProjectsAsync(
+			final ProjectFilterSpecDataObj specData) {
+		return submitAsync(new Callable<List<ProjectDataObj>>() {
+			public List<ProjectDataObj> call() throws Exception {
+				return getProjects(specData);
+			}
+		});
+	}
+
+	public Future<List<StreamDataObj>> getStreamsAsync(
+			final StreamFilterSpecDataObj specData) {
+		return submitAsync(new Callable<List<StreamDataObj>>() {
+			public List<StreamDataObj> call() throws Exception {
+				return getStreams(specData);
+			}
+		});
+	}
+
+	public Future<List<UserDataObj>> getAllUsersAsync() {
+		return submitAsync(new Callable<List<UserDataObj>>() {
+			public List<UserDataObj> call() throws Exception {
+				return getAllUsers();
+			}
+		});
+	}
+
+	public Future<List<MergedDefectDataObj>> getMergedDefectsForProjectAsync(
+			final String project, final MergedDefectFilterSpecDataObj filterSpec) {
+		return submitAsync(new Callable<List<MergedDefectDataObj>>() {
+			public List<MergedDefectDataObj> call() throws Exception {
+				return getMergedDefectsForProject(project, filterSpec);
+			}
+		});
+	}
+
+	public Future<List<MergedDefectDataObj>> getMergedDefectsForStreamsAsync(
+			final List<String> names,
+			final MergedDefectFilterSpecDataObj filterSpec) {
+		return submitAsync(new Callable<List<MergedDefectDataObj>>() {
+			public List<MergedDefectDataObj> call() throws Exception {
+				return getMergedDefectsForStreams(names, filterSpec);
+			}
+		});
+	}
+
+	public Future<List<String>> notifyAsync(final List<String> userNames,
+			final String subject, final String message) {
+		return submitAsync(new Callable<List<String>>() {
+			public List<String> call() throws Exception {
+				return CimProxy.this.notify(userNames, subject, message);
+			}
+		});
+	}
+
+	public Future<String> notifyAsync(final String userName,
+			final String subject, final String message) {
+		return submitAsync(new Callable<String>() {
+			public String call() throws Exception {
+				return CimProxy.this.notify(userName, subject, message);
+			}
+		});
+	}
+
+	/**
+	 * Number of merged defect pages fetched at once. Every page in flight
+	 * borrows a defect service port of its own, as JAX-WS ports must not be
+	 * shared between threads, so there are never more pages in flight than
+	 * the port pool holds; with a single port the pages are fetched one
+	 * after the other.
+	 */
+	private int getFetchConcurrency() {
+		// the pool is missing if the proxy failed to initialize; the calls
+		// themselves report that
+		int ports = this.defectServicePool != null ? this.defectServicePool.size() : 1;
+		return Math.max(1, Math.min(this.fetchThreads, ports));
+	}
+
+	private synchronized ExecutorService getFetchExecutor() {
+		if (this.fetchExecutor == null) {
+			final AtomicInteger threadCount = new AtomicInteger();
+			this.fetchExecutor = Executors.newFixedThreadPool(this.fetchThreads,
+					new ThreadFactory() {
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "cim-fetch-"
+									+ threadCount.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+
+		return this.fetchExecutor;
+	}
+
+	/**
+	 * Returns the CIDs of the project's merged defects matching the filter
+	 */
+	public List<Long> getCIDsForProject(String project,
+			final MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		final ProjectIdDataObj projectId = new ProjectIdDataObj();
+		projectId.setName(project);
+
+		return callDefectService("getCIDsForProject", new DefectServiceCall<List<Long>>() {
+			public List<Long> call(DefectService defectService)
+					throws CovRemoteServiceException_Exception {
+				return defectService.getCIDsForProject(projectId, filterSpec);
+			}
+		});
+	}
+
+	/**
+	 * Returns the CIDs of the streams' merged defects matching the filter
+	 */
+	public List<Long> getCIDsForStreams(List<String> names,
+			final MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		final List<StreamIdDataObj> streamIds = new ArrayList<StreamIdDataObj>();
+		for (String name : names) {
+			StreamIdDataObj streamId = new StreamIdDataObj();
+			streamId.setName(name);
+			streamIds.add(streamId);
+		}
+
+		return callDefectService("getCIDsForStreams", new DefectServiceCall<List<Long>>() {
+			public List<Long> call(DefectService defectService)
+					throws CovRemoteServiceException_Exception {
+				return defectService.getCIDsForStreams(streamIds, filterSpec);
+			}
+		});
+	}
+
+	/**
+	 * Fetches the project's merged defects with the given CIDs. The sorted
+	 * CIDs are split into windows of one page each, every window is fetched
+	 * with a CID list bounded by its lowest and highest CID, and the windows
+	 * are fetched concurrently. Results are in CID order.
+	 */
+	public List<MergedDefectDataObj> getMergedDefectsForCids(String project,
+			Collection<Long> cids) throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		return getMergedDefectsForCids(createProjectQuery(project), cids);
+	}
+
+	/**
+	 * Fetches the streams' merged defects with the given CIDs, in CID order,
+	 * the same way as getMergedDefectsForCids()
+	 */
+	public List<MergedDefectDataObj> getMergedDefectsForStreamCids(
+			List<String> names, Collection<Long> cids)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		return getMergedDefectsForCids(createStreamsQuery(names), cids);
+	}
+
+	private List<MergedDefectDataObj> getMergedDefectsForCids(
+			MergedDefectQuery query, Collection<Long> cids)
+			throws CovRemoteServiceException_Exception {
+		List<Long> sortedCids = new ArrayList<Long>(cids);
+		Collections.sort(sortedCids);
+		if (sortedCids.isEmpty()) {
+			return new ArrayList<MergedDefectDataObj>();
+		}
+
+		List<MergedDefectPageFetcher> fetchers = new ArrayList<MergedDefectPageFetcher>();
+		for (int start = 0; start < sortedCids.size(); start += MERGED_DEFECT_PAGE_SIZE) {
+			List<Long> window = sortedCids.subList(start, Math.min(start
+					+ MERGED_DEFECT_PAGE_SIZE, sortedCids.size()));
+			MergedDefectFilterSpecDataObj filterSpec = new MergedDefectFilterSpecDataObj();
+			filterSpec.getCidList().addAll(window);
+			filterSpec.setMinCid(window.get(0));
+			filterSpec.setMaxCid(window.get(window.size() - 1));
+			fetchers.add(createPageFetcher(query, filterSpec));
+		}
+
+		return fetchAllConcurrently(fetchers);
+	}
+
+	public MergedDefectDataObj getMergedDefectForProject(String project, Long cid) throws CovRemoteServiceException_Exception {
+		MergedDefectFilterSpecDataObj filterSpec = new MergedDefectFilterSpecDataObj();
+		filterSpec.setMinCid(new Long(cid));
+		filterSpec.setMaxCid(new Long(cid));
+		
+		// single defects bypass the defect cache
+		checkInitialized();
+		List<MergedDefectDataObj> defects = getMergedDefects(null, createProjectQuery(project), filterSpec);
+		if(defects.size() == 1) {
+			return defects.get(0);
+		}
+		
+		return null;
+	}
+
+	public List<UserDataObj> getAllUsers()
+			throws CovRemoteServiceException_Exception {
+		return this.getUsers(new UserFilterSpecDataObj());
+	}
+
+	/**
+	 * Pages through the users matching the filter spec. Concurrent calls with
+	 * an equal filter spec share one fetch.
+	 */
+	public List<UserDataObj> getUsers(final UserFilterSpecDataObj userFilterSpecDO)
+			throws CovRemoteServiceException_Exception {
+		checkInitialized();
+
+		return new ArrayList<UserDataObj>(this.userFlights.execute(SingleFlight
+				.key("getUsers", userFilterSpecDO),
+				new Callable<List<UserDataObj>>() {
+					public List<UserDataObj> call() throws Exception {
+						return fetchUsers(userFilterSpecDO);
+					}
+				}));
+	}
+
+	private List<UserDataObj> fetchUsers(final UserFilterSpecDataObj userFilterSpecDO)
+			throws CovRemoteServiceException_Exception {
+
+		int count = 0;
+		int offset = 0;
+		UsersPageDataObj page = null;
+		List<UserDataObj> results = new ArrayList<UserDataObj>();
+		boolean empty = false;
+		do {
+			final PageSpecDataObj pageSpec = createPageSpec(offset,
+					this.userPageSizer.getPageSize());
+			page = callConfigurationService("getUsers", offset,
+					new ConfigurationServiceCall<UsersPageDataObj>() {
+				public UsersPageDataObj call(ConfigurationService configurationService)
+						throws CovRemoteServiceException_Exception {
+					return configurationService.getUsers(userFilterSpecDO, pageSpec);
+				}
+			});
+			results.addAll(page.getUsers());
+
+			empty = page.getUsers().size() == 0;
+			if(!empty) {
+				count += page.getUsers().size();
+				offset += page.getUsers().size();
+			}
+		} while (count < page.getTotalNumberOfRecords() && !empty);
+
+		return results;
+	}
+
+	public void updateDefect(Long cid, String pattern,
+			DefectStateSpecDataObj defectStateSpec)
+			throws CovRemoteServiceException_Exception {
+		DefectUpdateBatch batch = new DefectUpdateBatch();
+		batch.add(cid, pattern, defectStateSpec);
+		updateDefects(batch);
+	}
+
+	/**
+	 * Applies a batch of defect updates. For every group of CIDs sharing a
+	 * scope pattern and defect state, the stream defect ids are resolved with
+	 * getStreamDefects and updated with updateStreamDefects, both in chunks of
+	 * update-batch-size.
+	 */
+	public void updateDefects(DefectUpdateBatch batch)
+			throws CovRemoteServiceException_Exception {
+		try {
+			for (DefectUpdateBatch.Group group : batch.getGroups()) {
+				final String pattern = group.getScopePattern();
+				StreamDefectFilterSpecDataObj filterSpec = new StreamDefectFilterSpecDataObj();
+				filterSpec.setScopePattern(pattern);
+
+				// resolve stream defect ids
+				List<Long> cids = group.getCids();
+				final List<Long> iids = new ArrayList<Long>();
+				for (int i = 0; i < cids.size(); i += this.updateBatchSize) {
+					List<Long> cidChunk = cids.subList(i,
+							Math.min(cids.size(), i + this.updateBatchSize));
+					forEachStreamDefect(new ArrayList<Long>(cidChunk), filterSpec,
+							new DefectHandler<StreamDefectDataObj>() {
+								public void handle(StreamDefectDataObj defect) {
+									iids.add(defect.getId().getId());
+								}
+							});
+				}
+
+				// update stream defects
+				for (int i = 0; i < iids.size(); i += this.updateBatchSize) {
+					List<Long> iidChunk = iids.subList(i,
+							Math.min(iids.size(), i + this.updateBatchSize));
+					updateDefectsHelper(iidChunk, pattern,
+							group.getDefectStateSpec());
+				}
+			}
+		} finally {
+			// cached defects no longer reflect the triage state, even if
+			// only some of the updates were applied
+			if (!batch.isEmpty()) {
+				DefectCache.getInstance().clear();
+			}
+		}
+	}
+
+	private void updateDefectsHelper(List<Long> iids, final String pattern,
+			final DefectStateSpecDataObj defectStateSpec)
+			throws CovRemoteServiceException_Exception {
+		final List<StreamDefectIdDataObj> streamDefectIds = new ArrayList<StreamDefectIdDataObj>();
+		for (Long iid : iids) {
+			StreamDefectIdDataObj streamDefectId = new StreamDefectIdDataObj();
+			streamDefectId.setId(iid);
+			streamDefectId.setVerNum(551);
+			streamDefectIds.add(streamDefectId);
+		}
+
+		callDefectService("updateStreamDefects", new DefectServiceCall<Void>() {
+			public Void call(DefectService defectService)
+					throws CovRemoteServiceException_Exception {
+				defectService.updateStreamDefects(streamDefectIds, pattern,
+						defectStateSpec);
+				return null;
+			}
+		});
+	}
+
+	public List<StreamDataObj> getAllStreams()
+			throws CovRemoteServiceException_Exception {
+		if (this.topologyCatalog != null) {
+			return this.topologyCatalog.getStreams();
+		}
+
+		return getStreams(new StreamFilterSpecDataObj());
+	}
+
+	/**
+	 * Looks up a single stream name in the topology catalog, other filters
+	 * go to the CIM
+	 */
+	public List<StreamDataObj> getStreams(final StreamFilterSpecDataObj specData)
+			throws CovRemoteServiceException_Exception {
+		if (this.topologyCatalog != null && isPlainName(specData.getNamePattern())
+				&& specData.getDescriptionPattern() == null
+				&& specData.getLanguageList().isEmpty()) {
+			StreamDataObj stream = this.topologyCatalog.getStream(specData.getNamePattern());
+			if (stream != null) {
+				return new ArrayList<StreamDataObj>(Collections.singletonList(stream));
+			}
+		}
+
+		return fetchStreams(specData);
+	}
+
+	/**
+	 * Fetches streams from the CIM; concurrent calls with an equal filter
+	 * spec share one request
+	 */
+	List<StreamDataObj> fetchStreams(final StreamFilterSpecDataObj specData)
+			throws CovRemoteServiceException_Exception {
+		return new ArrayList<StreamDataObj>(this.streamFlights.execute(SingleFlight
+				.key("getStreams", specData), new Callable<List<StreamDataObj>>() {
+			public List<StreamDataObj> call() throws Exception {
+				return callConfigurationService("getStreams", new ConfigurationServiceCall<List<StreamDataObj>>() {
+					public List<StreamDataObj> call(ConfigurationService configurationService)
+							throws CovRemoteServiceException_Exception {
+						return configurationService.getStreams(specData);
+					}
+				});
+			}
+		}));
+	}
+	
+	/**
+	 * Looks up the project in the topology catalog first; projects it does
+	 * not know yet are looked up in the CIM
+	 */
+	public ProjectDataObj getProject(String name) throws CovRemoteServiceException_Exception {
+		if (this.topologyCatalog != null && isPlainName(name)) {
+			ProjectDataObj project = this.topologyCatalog.getProject(name);
+			if (project != null) {
+				return project;
+			}
+		}
+
+		ProjectFilterSpecDataObj specData = new ProjectFilterSpecDataObj();
+		specData.setNamePattern(name);
+		
+		List<ProjectDataObj> projects = getProjects(specData);
+		if(projects.size() == 1) {
+			return projects.get(0);
+		}
+		
+		return null;
+	}
+	
+	public List<ProjectDataObj> getProjects(final ProjectFilterSpecDataObj specData) throws CovRemoteServiceException_Exception {
+		return fetchProjects(specData);
+	}
+
+	/**
+	 * Fetches projects from the CIM; concurrent calls with an equal filter
+	 * spec share one request
+	 */
+	List<ProjectDataObj> fetchProjects(final ProjectFilterSpecDataObj specData)
+			throws CovRemoteServiceException_Exception {
+		return new ArrayList<ProjectDataObj>(this.projectFlights.execute(SingleFlight
+				.key("getProjects", specData), new Callable<List<ProjectDataObj>>() {
+			public List<ProjectDataObj> call() throws Exception {
+				return callConfigurationService("getProjects", new ConfigurationServiceCall<List<ProjectDataObj>>() {
+					public List<ProjectDataObj> call(ConfigurationService configurationService)
+							throws CovRemoteServiceException_Exception {
+						return configurationService.getProjects(specData);
+					}
+				});
+			}
+		}));
+	}
+	
+	public void updateProject(String name, final ProjectSpecDataObj specData) throws CovRemoteServiceException_Exception {
+		final ProjectIdDataObj projectIdDataObj = new ProjectIdDataObj();
+		projectIdDataObj.setName(name);
+		callConfigurationService("updateProject", new ConfigurationServiceCall<Void>() {
+			public Void call(ConfigurationService configurationService)
+					throws CovRemoteServiceException_Exception {
+				configurationService.updateProject(projectIdDataObj, specData);
+				return null;
+			}
+		});
+	}
+	
+	public List<String> notify(final List<String> userNames, final String subject, final String message) throws CovRemoteServiceException_Exception {
+		Object event = FlightEvents.begin(FlightEvents.NOTIFY);
+		List<String> recipients = null;
+		try {
+			recipients = callConfigurationService("notify", new ConfigurationServiceCall<List<String>>() {
+				public List<String> call(ConfigurationService configurationService)
+						throws CovRemoteServiceException_Exception {
+					return configurationService.notify(userNames, subject, message);
+				}
+			});
+			return recipients;
+		} finally {
+			FlightEvents.commit(event, subject, userNames.size(),
+					recipients != null ? recipients.size() : 0, recipients == null);
+		}
+	}
+	
+	public String notify(String userName, String subject, String message) throws CovRemoteServiceException_Exception {
+		List<String> userNames = new ArrayList<String>();
+		userNames.add(userName);
+		List<String> recipients = notify(userNames, subject, message);
+		if(recipients.size() == 1) {
+			return recipients.get(0);
+		}
+		
+		return "";
+	}
+	
+	public void createUser(final UserSpecDataObj specData) throws CovRemoteServiceException_Exception {
+		callConfigurationService("createUser", new ConfigurationServiceCall<Void>() {
+			public Void call(ConfigurationService configurationService)
+					throws CovRemoteServiceException_Exception {
+				configurationService.createUser(specData);
+				return null;
+			}
+		});
+	}
+	
+	public void createProject(String projectName, List<String> streamNames) throws CovRemoteServiceException_Exception {
+		ProjectSpecDataObj specData = new ProjectSpecDataObj();
+		specData.setName(projectName);
+		List<StreamIdDataObj> streams = specData.getStreams();
+		for(String streamName : streamNames) {
+			StreamIdDataObj streamId = new StreamIdDataObj();
+			streamId.setName(streamName);
+			streams.add(streamId);
+		}
+		createProject(specData);
+	}
+	
+	public void createProject(final ProjectSpecDataObj specData) throws CovRemoteServiceException_Exception {
+		callConfigurationService("createProject", new ConfigurationServiceCall<Void>() {
+			public Void call(ConfigurationService configurationService)
+					throws CovRemoteServiceException_Exception {
+				configurationService.createProject(specData);
+				return null;
+			}
+		});
+	}
+	
+	public void createStream(final StreamSpecDataObj specData) throws CovRemoteServiceException_Exception {
+		callConfigurationService("createStream", new ConfigurationServiceCall<Void>() {
+			public Void call(ConfigurationService configurationService)
+					throws CovRemoteServiceException_Exception {
+				configurationService.createStream(specData);
+				return null;
+			}
+		});
+	}
+	
+	public void deleteSnapshot(Long id) throws CovRemoteServiceException_Exception {
+		final SnapshotIdDataObj snapshotIdDataObj = new SnapshotIdDataObj();
+		snapshotIdDataObj.setId(id);
+		callConfigurationService("deleteSnapshot", new ConfigurationServiceCall<Void>() {
+			public Void call(ConfigurationService configurationService)
+					throws CovRemoteServiceException_Exception {
+				configurationService.deleteSnapshot(snapshotIdDataObj);
+				return null;
+			}
+		});
+	}
+	
+	public List<SnapshotIdDataObj> getSnapshotsForStream(String name, final SnapshotFilterSpecDataObj filterSpec) throws CovRemoteServiceException_Exception {
+		final StreamIdDataObj streamId = new StreamIdDataObj();
+		streamId.setName(name);
+		return new ArrayList<SnapshotIdDataObj>(this.snapshotFlights.execute(SingleFlight
+				.key("getSnapshotsForStream", streamId, filterSpec),
+				new Callable<List<SnapshotIdDataObj>>() {
+					public List<SnapshotIdDataObj> call() throws Exception {
+						return callConfigurationService("getSnapshotsForStream", new ConfigurationServiceCall<List<SnapshotIdDataObj>>() {
+							public List<SnapshotIdDataObj> call(ConfigurationService configurationService)
+									throws CovRemoteServiceException_Exception {
+								return configurationService.getSnapshotsForStream(streamId, filterSpec);
+							}
+						});
+					}
+				}));
+	}
+	
+	public static void main(String[] args) {
+		try {
+			FlightEvents.startRecording(CimProxy.class.getSimpleName());
+			CimProxy cimProxy = CimProxy.getInstance();
+			List<UserDataObj> users = cimProxy.getAllUsers();
+			for(UserDataObj user : users) {
+				System.out.println("user=" + user.getUsername());
+			}
+			System.out.println("cim calls: " + cimProxy.getConcurrencyLimiter());
+			System.out.println("shared calls: " + cimProxy.getSharedCalls());
+			System.out.println("transfers: " + cimProxy.getTransferStats());
+			System.out.println("done.");
+		} catch (CovRemoteServiceException_Exception e) {
+			e.printStackTrace();
+		} finally {
+			MetricsRegistry.getInstance().dump(CimProxy.class.getSimpleName());
+		}
+	}
+}
@@ -95,24 +95,28 @@ public class ClientAuthenticationHandlerWSS implements
 	public boolean handleMessage(SOAPMessageContext smc) {
 		boolean outbound = ((Boolean) smc
 				.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY)).booleanValue();
-		SOAPMessage msg = smc.getMessage();
 		if (outbound) {
-			try {
-				ProcessingContext context = xwssProcessor
-						.createProcessingContext(msg);
-				context.setSOAPMessage(msg);
-				SOAPMessage secureMsg = xwssProcessor
-						.secureOutboundMessage(context);
-				smc.setMessage(secureMsg);
-			} catch (XWSSecurityException ex) {
-				throw new RuntimeException(ex);
-			} catch (Exception e) {
-				throw new RuntimeException(e);
-			}
+			smc.setMessage(secure(smc.getMessage()));
 		}
 		return true;
 	}
 
+	/**
+	 * Returns the message with the security header added
+	 */
+	SOAPMessage secure(SOAPMessage msg) {
+		try {
+			ProcessingContext context = xwssProcessor
+					.createProcessingContext(msg);
+			context.setSOAPMessage(msg);
+			return xwssProcessor.secureOutboundMessage(context);
+		} catch (XWSSecurityException ex) {
+			throw new RuntimeException(ex);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	private class SecurityEnvironmentHandler implements CallbackHandler {
 
 		public void handle(Callback[] callbacks)
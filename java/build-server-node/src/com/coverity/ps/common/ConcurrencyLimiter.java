@@ -0,0 +1,152 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+
+/**
+ * Adaptive limit on the number of CIM calls in flight, shared by all services
+ * of a CimProxy. The limit grows by one call per limit's worth of healthy
+ * completions and is halved when a call fails or takes longer than the
+ * latency tolerance times the baseline latency. The baseline is a slow
+ * moving average of healthy call latencies. At most one decrease is applied
+ * per baseline interval, so a burst of slow calls that were already in flight
+ * counts once.
+ *
+ * Permits are reentrant per thread: a call made while the thread already
+ * holds a permit (for example from a streaming defect handler) is not
+ * limited again, which keeps nested calls from deadlocking.
+ */
+public class ConcurrencyLimiter {
+	// weight of the latest healthy call in the baseline latency
+	private static final double BASELINE_SMOOTHING = 0.05;
+	private final int minLimit;
+	private final int maxLimit;
+	private final double latencyTolerance;
+	private final ThreadLocal<int[]> depth = new ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+	private double limit;
+	private int inFlight = 0;
+	private int waiting = 0;
+	private double baselineMillis = -1;
+	private long lastDecrease = 0;
+	private long completed = 0;
+	private long failed = 0;
+
+	public ConcurrencyLimiter(int initialLimit, int maxLimit,
+			double latencyTolerance) {
+		this.minLimit = 1;
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.latencyTolerance = Math.max(1.0, latencyTolerance);
+		this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+	}
+
+	/**
+	 * Waits until a call may be made
+	 */
+	public void acquire() throws CovRemoteServiceException_Exception {
+		int[] held = this.depth.get();
+		if (held[0] > 0) {
+			held[0]++;
+			return;
+		}
+
+		synchronized (this) {
+			this.waiting++;
+			try {
+				while (this.inFlight >= (int) this.limit) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CovRemoteServiceException_Exception(
+						"Interrupted while waiting to call the CIM", null, e);
+			} finally {
+				this.waiting--;
+			}
+			this.inFlight++;
+		}
+		held[0] = 1;
+	}
+
+	/**
+	 * Ends a call started with acquire() and adjusts the limit
+	 *
+	 * @param elapsedMillis time taken by the call
+	 * @param success false if the call failed in transport or with a SOAP
+	 *            fault other than a CIM service exception
+	 */
+	public void release(long elapsedMillis, boolean success) {
+		int[] held = this.depth.get();
+		if (--held[0] > 0) {
+			return;
+		}
+
+		synchronized (this) {
+			this.inFlight--;
+			this.completed++;
+			long now = System.currentTimeMillis();
+			boolean healthy = success
+					&& (this.baselineMillis < 0 || elapsedMillis <= this.baselineMillis
+							* this.latencyTolerance);
+			if (healthy) {
+				this.baselineMillis = this.baselineMillis < 0 ? elapsedMillis
+						: BASELINE_SMOOTHING * elapsedMillis
+								+ (1 - BASELINE_SMOOTHING) * this.baselineMillis;
+				this.limit = Math.min(this.maxLimit, this.limit + 1.0 / this.limit);
+			} else {
+				if (!success) {
+					this.failed++;
+				}
+				if (now - this.lastDecrease >= Math.max(1, (long) this.baselineMillis)) {
+					this.limit = Math.max(this.minLimit, this.limit / 2);
+					this.lastDecrease = now;
+				}
+			}
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Current number of calls allowed in flight
+	 */
+	public synchronized int getLimit() {
+		return (int) this.limit;
+	}
+
+	public synchronized int getInFlight() {
+		return this.inFlight;
+	}
+
+	/**
+	 * Number of callers waiting for a permit
+	 */
+	public synchronized int getQueueDepth() {
+		return this.waiting;
+	}
+
+	/**
+	 * Baseline latency in milliseconds, or -1 before the first healthy call
+	 */
+	public synchronized long getBaselineMillis() {
+		return (long) this.baselineMillis;
+	}
+
+	public synchronized long getCompletedCalls() {
+		return this.completed;
+	}
+
+	public synchronized long getFailedCalls() {
+		return this.failed;
+	}
+
+	public synchronized String toString() {
+		return "limit=" + (int) this.limit + ", inFlight=" + this.inFlight
+				+ ", queued=" + this.waiting + ", baseline="
+				+ (long) this.baselineMillis + "ms, completed=" + this.completed
+				+ ", failed=" + this.failed;
+	}
+}
@@ -0,0 +1,477 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import com.coverity.ps.common.config.ConfigurationManager;
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.MergedDefectDataObj;
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+import com.coverity.ws.v4.MergedDefectsPageDataObj;
+import com.coverity.ws.v4.PageSpecDataObj;
+
+/**
+ * Local cache of fetched merged defects, shared by the integrations run one
+ * after the other against the same project. Entries are binary, gzipped
+ * files in the directory named by the defect-cache-dir configuration tag,
+ * keyed by scope (project or streams) and filter spec, and are used while
+ * younger than defect-cache-max-age seconds.
+ *
+ * The first-detected start date is not part of the key, because the reports
+ * derive it from the current time. An entry fetched with an earlier (or no)
+ * start date also answers requests with a later one; the extra defects are
+ * filtered out while reading.
+ */
+public class DefectCache {
+	private static final int CACHE_VERSION = 1;
+	private static DefectCache instance;
+	private final File directory;
+	private final long maxAgeMillis;
+	private JAXBContext filterSpecContext;
+
+	private DefectCache(File directory, long maxAgeMillis) {
+		this.directory = directory;
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	public static synchronized DefectCache getInstance() {
+		if (instance == null) {
+			ConfigurationManager configurationManager = ConfigurationManager.getInstance();
+			String directory = configurationManager.getDefectCacheDir();
+			instance = new DefectCache(directory != null && directory.length() > 0 ? new File(
+					directory) : null, configurationManager.getDefectCacheMaxAge() * 1000L);
+		}
+
+		return instance;
+	}
+
+	public boolean isEnabled() {
+		return this.directory != null;
+	}
+
+	static String projectScope(String project) {
+		return "project:" + project;
+	}
+
+	static String streamsScope(List<String> streams) {
+		StringBuilder scope = new StringBuilder("streams:");
+		for (int i = 0; i < streams.size(); i++) {
+			if (i > 0) {
+				scope.append(',');
+			}
+			scope.append(streams.get(i));
+		}
+		return scope.toString();
+	}
+
+	/**
+	 * Returns the cached defects, or null if there is no usable entry
+	 */
+	List<MergedDefectDataObj> get(String scope,
+			MergedDefectFilterSpecDataObj filterSpec) {
+		EntryReader reader = open(scope, filterSpec);
+		if (reader == null) {
+			return null;
+		}
+
+		List<MergedDefectDataObj> defects = new ArrayList<MergedDefectDataObj>();
+		try {
+			MergedDefectDataObj defect;
+			while ((defect = reader.next()) != null) {
+				defects.add(defect);
+			}
+			return defects;
+		} catch (IOException e) {
+			System.err.println("Unable to read defect cache: " + e);
+			return null;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Returns a page fetcher serving the cached defects in order, or null if
+	 * there is no usable entry. The start index of the page spec is ignored.
+	 * The reported total is the size of the entry, which is an upper bound
+	 * when defects are filtered out while reading.
+	 */
+	MergedDefectPageFetcher getPageFetcher(String scope,
+			MergedDefectFilterSpecDataObj filterSpec) {
+		final EntryReader reader = open(scope, filterSpec);
+		if (reader == null) {
+			return null;
+		}
+
+		return new MergedDefectPageFetcher() {
+			public synchronized MergedDefectsPageDataObj fetch(
+					PageSpecDataObj pageSpec)
+					throws CovRemoteServiceException_Exception {
+				MergedDefectsPageDataObj page = new MergedDefectsPageDataObj();
+				try {
+					MergedDefectDataObj defect;
+					while (page.getMergedDefects().size() < pageSpec.getPageSize()
+							&& (defect = reader.next()) != null) {
+						page.getMergedDefects().add(defect);
+					}
+				} catch (IOException e) {
+					reader.close();
+					throw new CovRemoteServiceException_Exception(
+							"Unable to read defect cache", null, e);
+				}
+				page.setTotalNumberOfRecords(reader.count);
+				return page;
+			}
+
+			public synchronized void close() {
+				reader.close();
+			}
+		};
+	}
+
+	/**
+	 * Stores the defects fetched with the given filter spec
+	 */
+	void put(String scope, MergedDefectFilterSpecDataObj filterSpec,
+			List<MergedDefectDataObj> defects) {
+		EntryWriter writer = null;
+		try {
+			writer = new EntryWriter(scope, filterSpec, defects.size());
+			for (MergedDefectDataObj defect : defects) {
+				writer.write(defect);
+			}
+			writer.commit();
+		} catch (IOException e) {
+			System.err.println("Unable to write defect cache: " + e);
+			if (writer != null) {
+				writer.abort();
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries; called after defects have been updated
+	 */
+	public void clear() {
+		if (!isEnabled()) {
+			return;
+		}
+
+		File[] files = this.directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().endsWith(".cache") && !file.delete()) {
+					System.err.println("Unable to remove defect cache " + file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wraps a page fetcher so that the pages it fetches are written to the
+	 * cache. Pages must be fetched in order; the entry is stored once the
+	 * last page has been fetched. Closing the fetcher before that deletes
+	 * the partly written entry.
+	 */
+	MergedDefectPageFetcher createCachingFetcher(final String scope,
+			final MergedDefectFilterSpecDataObj filterSpec,
+			final MergedDefectPageFetcher fetcher) {
+		return new MergedDefectPageFetcher() {
+			private EntryWriter writer;
+			private boolean done = false;
+
+			public MergedDefectsPageDataObj fetch(PageSpecDataObj pageSpec)
+					throws CovRemoteServiceException_Exception {
+				MergedDefectsPageDataObj page = fetcher.fetch(pageSpec);
+				write(page);
+				return page;
+			}
+
+			private synchronized void write(MergedDefectsPageDataObj page) {
+				if (this.done) {
+					return;
+				}
+
+				try {
+					if (this.writer == null) {
+						this.writer = new EntryWriter(scope, filterSpec,
+								page.getTotalNumberOfRecords() != null ? page
+										.getTotalNumberOfRecords().intValue() : 0);
+					}
+					for (MergedDefectDataObj defect : page.getMergedDefects()) {
+						this.writer.write(defect);
+					}
+					if (page.getMergedDefects().size() == 0
+							|| this.writer.written >= this.writer.count) {
+						this.done = true;
+						this.writer.commit();
+					}
+				} catch (IOException e) {
+					System.err.println("Unable to write defect cache: " + e);
+					this.done = true;
+					if (this.writer != null) {
+						this.writer.abort();
+					}
+				}
+			}
+
+			public synchronized void close() {
+				if (!this.done) {
+					this.done = true;
+					if (this.writer != null) {
+						this.writer.abort();
+					}
+				}
+				fetcher.close();
+			}
+		};
+	}
+
+	private EntryReader open(String scope,
+			MergedDefectFilterSpecDataObj filterSpec) {
+		if (!isEnabled()) {
+			return null;
+		}
+
+		File file = getFile(scope, filterSpec);
+		if (!file.exists()
+				|| System.currentTimeMillis() - file.lastModified() > this.maxAgeMillis) {
+			return null;
+		}
+
+		EntryReader reader = null;
+		try {
+			reader = new EntryReader(file, filterSpec.getFirstDetectedStartDate());
+			if (!scope.equals(reader.scope)
+					|| !getFingerprint(filterSpec).equals(reader.fingerprint)
+					|| System.currentTimeMillis() - reader.fetchTime > this.maxAgeMillis
+					|| !covers(reader.firstDetectedStartDate,
+							filterSpec.getFirstDetectedStartDate())) {
+				reader.close();
+				return null;
+			}
+			return reader;
+		} catch (IOException e) {
+			System.err.println("Unable to read defect cache " + file + ": " + e);
+			if (reader != null) {
+				reader.close();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * True if an entry fetched from the given start date holds every defect
+	 * requested from the other
+	 */
+	private static boolean covers(XMLGregorianCalendar cached,
+			XMLGregorianCalendar requested) {
+		if (cached == null) {
+			return true;
+		}
+		if (requested == null) {
+			return false;
+		}
+
+		int result = cached.compare(requested);
+		return result == DatatypeConstants.LESSER
+				|| result == DatatypeConstants.EQUAL;
+	}
+
+	private File getFile(String scope, MergedDefectFilterSpecDataObj filterSpec) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(scope.getBytes("UTF-8"));
+			digest.update((byte) 0);
+			digest.update(getFingerprint(filterSpec).getBytes("UTF-8"));
+			StringBuilder name = new StringBuilder();
+			for (byte b : digest.digest()) {
+				name.append(String.format("%02x", b));
+			}
+			name.append(".cache");
+			return new File(this.directory, name.toString());
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the XML form of the filter spec without the first-detected
+	 * start date
+	 */
+	private synchronized String getFingerprint(
+			MergedDefectFilterSpecDataObj filterSpec) {
+		MergedDefectFilterSpecDataObj keySpec = FilterSpecs.copy(filterSpec);
+		keySpec.setFirstDetectedStartDate(null);
+		try {
+			if (this.filterSpecContext == null) {
+				this.filterSpecContext = JAXBContext
+						.newInstance(MergedDefectFilterSpecDataObj.class);
+			}
+			Marshaller marshaller = this.filterSpecContext.createMarshaller();
+			StringWriter xml = new StringWriter();
+			marshaller.marshal(new JAXBElement<MergedDefectFilterSpecDataObj>(
+					new QName("http://ws.coverity.com/v4", "filterSpec"),
+					MergedDefectFilterSpecDataObj.class, keySpec), xml);
+			return xml.toString();
+		} catch (JAXBException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Reads one entry; the defects are decoded one at a time
+	 */
+	private static class EntryReader {
+		private final DataInputStream in;
+		private final MergedDefectCodec codec = new MergedDefectCodec();
+		private final XMLGregorianCalendar requestedStartDate;
+		private String scope;
+		private String fingerprint;
+		private long fetchTime;
+		private XMLGregorianCalendar firstDetectedStartDate;
+		private int count;
+		private boolean closed = false;
+
+		EntryReader(File file, XMLGregorianCalendar requestedStartDate)
+				throws IOException {
+			this.requestedStartDate = requestedStartDate;
+			this.in = new DataInputStream(new BufferedInputStream(
+					new GZIPInputStream(new FileInputStream(file))));
+			if (this.in.readInt() != CACHE_VERSION) {
+				throw new IOException("unsupported cache version");
+			}
+			this.scope = this.codec.readString(this.in);
+			this.fingerprint = this.codec.readString(this.in);
+			this.fetchTime = this.in.readLong();
+			String startDate = this.codec.readString(this.in);
+			if (startDate != null) {
+				try {
+					this.firstDetectedStartDate = DatatypeFactory.newInstance()
+							.newXMLGregorianCalendar(startDate);
+				} catch (DatatypeConfigurationException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			this.count = this.in.readInt();
+		}
+
+		/**
+		 * Returns the next defect detected on or after the requested start
+		 * date, or null at the end of the entry
+		 */
+		MergedDefectDataObj next() throws IOException {
+			while (!this.closed && this.in.readBoolean()) {
+				MergedDefectDataObj defect = this.codec.read(this.in);
+				if (this.requestedStartDate == null
+						|| defect.getFirstDetected() == null
+						|| defect.getFirstDetected().compare(this.requestedStartDate) != DatatypeConstants.LESSER) {
+					return defect;
+				}
+			}
+
+			close();
+			return null;
+		}
+
+		void close() {
+			if (!this.closed) {
+				this.closed = true;
+				try {
+					this.in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes one entry to a temporary file that replaces the entry on commit
+	 */
+	private class EntryWriter {
+		private final File file;
+		private final File tempFile;
+		private final DataOutputStream out;
+		private final MergedDefectCodec codec = new MergedDefectCodec();
+		private final int count;
+		private int written = 0;
+
+		EntryWriter(String scope, MergedDefectFilterSpecDataObj filterSpec,
+				int count) throws IOException {
+			this.file = getFile(scope, filterSpec);
+			this.count = count;
+			directory.mkdirs();
+			this.tempFile = File.createTempFile("defects", ".tmp", directory);
+			this.out = new DataOutputStream(new BufferedOutputStream(
+					new GZIPOutputStream(new FileOutputStream(this.tempFile))));
+			this.out.writeInt(CACHE_VERSION);
+			this.codec.writeString(this.out, scope);
+			this.codec.writeString(this.out, getFingerprint(filterSpec));
+			this.out.writeLong(System.currentTimeMillis());
+			this.codec.writeString(this.out,
+					filterSpec.getFirstDetectedStartDate() != null ? filterSpec
+							.getFirstDetectedStartDate().toXMLFormat() : null);
+			this.out.writeInt(count);
+		}
+
+		void write(MergedDefectDataObj defect) throws IOException {
+			this.out.writeBoolean(true);
+			this.codec.write(this.out, defect);
+			this.written++;
+		}
+
+		void commit() throws IOException {
+			this.out.writeBoolean(false);
+			this.out.close();
+			if (this.written != this.count) {
+				this.tempFile.delete();
+				throw new IOException("expected " + this.count
+						+ " defects but fetched " + this.written);
+			}
+			if (this.file.exists() && !this.file.delete()) {
+				this.tempFile.delete();
+				throw new IOException("unable to replace " + this.file);
+			}
+			if (!this.tempFile.renameTo(this.file)) {
+				this.tempFile.delete();
+				throw new IOException("unable to rename " + this.tempFile);
+			}
+		}
+
+		void abort() {
+			try {
+				this.out.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			this.tempFile.delete();
+		}
+	}
+}
@@ -0,0 +1,10 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+/**
+ * Receives defects one at a time as they are decoded
+ */
+public interface DefectHandler<T> {
+	public void handle(T defect);
+}
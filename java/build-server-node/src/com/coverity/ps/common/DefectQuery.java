@@ -0,0 +1,297 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.MergedDefectDataObj;
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+
+/**
+ * Fluent query over the merged defects of a project or of streams, created
+ * with CimProxy.queryMergedDefectsForProject() or
+ * queryMergedDefectsForStreams(). Conditions on status, severity,
+ * classification, action, CID range and dates are compiled into the filter
+ * spec and applied by the CIM, so only matching defects are transferred.
+ * Owner and checker conditions are applied on the client only: the CIM
+ * matches owners by user name, not by the "Unassigned" shown for defects
+ * without one, and a checker filter without subcategory and domain may not
+ * match at all, so on the server they could drop defects that match.
+ * Conditions the filter spec cannot express are given as a Predicate and
+ * applied on the client. All conditions are checked again on the client, so
+ * a condition the server interprets more loosely never lets a defect
+ * through.
+ *
+ * When defect-sync-dir is configured, the query is instead answered from
+ * all defects of the project or streams as kept up to date by DefectSync,
+ * and every condition is applied on the client.
+ *
+ * Values given to the same condition are alternatives; different conditions
+ * must all hold.
+ */
+public class DefectQuery {
+	private final CimProxy cimProxy;
+	private final String project;
+	private final List<String> streams;
+	private final Set<String> statuses = new HashSet<String>();
+	private final Set<String> severities = new HashSet<String>();
+	private final Set<String> owners = new HashSet<String>();
+	private final Set<String> classifications = new HashSet<String>();
+	private final Set<String> actions = new HashSet<String>();
+	private final Set<String> checkers = new HashSet<String>();
+	private final List<Predicate> predicates = new ArrayList<Predicate>();
+	private Long minCid;
+	private Long maxCid;
+	private XMLGregorianCalendar firstDetectedStart;
+	private XMLGregorianCalendar firstDetectedEnd;
+	private XMLGregorianCalendar lastDetectedStart;
+	private XMLGregorianCalendar lastDetectedEnd;
+	private XMLGregorianCalendar lastTriagedStart;
+	private XMLGregorianCalendar lastTriagedEnd;
+
+	/**
+	 * Condition applied on the client
+	 */
+	public interface Predicate {
+		public boolean matches(MergedDefectDataObj defect);
+	}
+
+	DefectQuery(CimProxy cimProxy, String project, List<String> streams) {
+		this.cimProxy = cimProxy;
+		this.project = project;
+		this.streams = streams;
+	}
+
+	public DefectQuery withStatus(String... names) {
+		this.statuses.addAll(Arrays.asList(names));
+		return this;
+	}
+
+	public DefectQuery withSeverity(String... names) {
+		this.severities.addAll(Arrays.asList(names));
+		return this;
+	}
+
+	public DefectQuery withOwner(String... names) {
+		this.owners.addAll(Arrays.asList(names));
+		return this;
+	}
+
+	public DefectQuery withClassification(String... names) {
+		this.classifications.addAll(Arrays.asList(names));
+		return this;
+	}
+
+	public DefectQuery withAction(String... names) {
+		this.actions.addAll(Arrays.asList(names));
+		return this;
+	}
+
+	public DefectQuery withChecker(String... names) {
+		return withCheckers(Arrays.asList(names));
+	}
+
+	public DefectQuery withCheckers(Collection<String> names) {
+		this.checkers.addAll(names);
+		return this;
+	}
+
+	/**
+	 * Restricts the CIDs to [minCid, maxCid]; either bound may be null
+	 */
+	public DefectQuery withCidRange(Long minCid, Long maxCid) {
+		this.minCid = minCid;
+		this.maxCid = maxCid;
+		return this;
+	}
+
+	/**
+	 * Restricts the first detection date to [start, end]; either bound may be
+	 * null
+	 */
+	public DefectQuery firstDetectedBetween(XMLGregorianCalendar start,
+			XMLGregorianCalendar end) {
+		this.firstDetectedStart = start;
+		this.firstDetectedEnd = end;
+		return this;
+	}
+
+	/**
+	 * Restricts the last detection date to [start, end]; either bound may be
+	 * null
+	 */
+	public DefectQuery lastDetectedBetween(XMLGregorianCalendar start,
+			XMLGregorianCalendar end) {
+		this.lastDetectedStart = start;
+		this.lastDetectedEnd = end;
+		return this;
+	}
+
+	/**
+	 * Restricts the last triage date to [start, end]; either bound may be
+	 * null
+	 */
+	public DefectQuery lastTriagedBetween(XMLGregorianCalendar start,
+			XMLGregorianCalendar end) {
+		this.lastTriagedStart = start;
+		this.lastTriagedEnd = end;
+		return this;
+	}
+
+	/**
+	 * Adds a condition the filter spec cannot express
+	 */
+	public DefectQuery where(Predicate predicate) {
+		this.predicates.add(predicate);
+		return this;
+	}
+
+	/**
+	 * Compiles the conditions the CIM applies as documented into a filter
+	 * spec; owner and checker conditions are left to matches()
+	 */
+	public MergedDefectFilterSpecDataObj toFilterSpec() {
+		MergedDefectFilterSpecDataObj filterSpec = new MergedDefectFilterSpecDataObj();
+		filterSpec.getStatusNameList().addAll(this.statuses);
+		filterSpec.getSeverityNameList().addAll(this.severities);
+		filterSpec.getClassificationNameList().addAll(this.classifications);
+		filterSpec.getActionNameList().addAll(this.actions);
+		filterSpec.setMinCid(this.minCid);
+		filterSpec.setMaxCid(this.maxCid);
+		filterSpec.setFirstDetectedStartDate(this.firstDetectedStart);
+		filterSpec.setFirstDetectedEndDate(this.firstDetectedEnd);
+		filterSpec.setLastDetectedStartDate(this.lastDetectedStart);
+		filterSpec.setLastDetectedEndDate(this.lastDetectedEnd);
+		filterSpec.setLastTriagedStartDate(this.lastTriagedStart);
+		filterSpec.setLastTriagedEndDate(this.lastTriagedEnd);
+		return filterSpec;
+	}
+
+	/**
+	 * True if the defect meets all conditions
+	 */
+	public boolean matches(MergedDefectDataObj defect) {
+		if (!matches(this.statuses, defect.getStatus())
+				|| !matches(this.severities, defect.getSeverity())
+				|| !matches(this.owners, defect.getOwner())
+				|| !matches(this.classifications, defect.getClassification())
+				|| !matches(this.actions, defect.getAction())
+				|| !matches(this.checkers, defect.getCheckerName())) {
+			return false;
+		}
+		if ((this.minCid != null && (defect.getCid() == null || defect.getCid() < this.minCid))
+				|| (this.maxCid != null && (defect.getCid() == null || defect.getCid() > this.maxCid))) {
+			return false;
+		}
+		if (!between(defect.getFirstDetected(), this.firstDetectedStart, this.firstDetectedEnd)
+				|| !between(defect.getLastDetected(), this.lastDetectedStart, this.lastDetectedEnd)
+				|| !between(defect.getLastTriaged(), this.lastTriagedStart, this.lastTriagedEnd)) {
+			return false;
+		}
+		for (Predicate predicate : this.predicates) {
+			if (!predicate.matches(defect)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Fetches the matching defects
+	 */
+	public List<MergedDefectDataObj> list()
+			throws CovRemoteServiceException_Exception {
+		final List<MergedDefectDataObj> results = new ArrayList<MergedDefectDataObj>();
+		if (DefectSync.isEnabled()) {
+			// only the matching defects of the sync are kept
+			sync(new DefectHandler<MergedDefectDataObj>() {
+				public void handle(MergedDefectDataObj defect) {
+					if (matches(defect)) {
+						results.add(defect);
+					}
+				}
+			});
+			return results;
+		}
+
+		List<MergedDefectDataObj> defects;
+		if (this.project != null) {
+			defects = this.cimProxy.getMergedDefectsForProject(this.project,
+					toFilterSpec());
+		} else {
+			defects = this.cimProxy.getMergedDefectsForStreams(this.streams,
+					toFilterSpec());
+		}
+
+		for (MergedDefectDataObj defect : defects) {
+			if (matches(defect)) {
+				results.add(defect);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Passes the matching defects to the handler as they are fetched
+	 */
+	public void forEach(final DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		DefectHandler<MergedDefectDataObj> filter = new DefectHandler<MergedDefectDataObj>() {
+			public void handle(MergedDefectDataObj defect) {
+				if (matches(defect)) {
+					handler.handle(defect);
+				}
+			}
+		};
+
+		if (DefectSync.isEnabled()) {
+			sync(filter);
+		} else if (this.project != null) {
+			this.cimProxy.forEachMergedDefectForProject(this.project,
+					toFilterSpec(), filter);
+		} else {
+			this.cimProxy.forEachMergedDefectForStreams(this.streams,
+					toFilterSpec(), filter);
+		}
+	}
+
+	/**
+	 * Syncs all defects of the project or streams and passes them to the
+	 * handler one at a time
+	 */
+	private void sync(DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		if (this.project != null) {
+			DefectSync.syncProject(this.project, handler);
+		} else {
+			DefectSync.syncStreams(this.streams, handler);
+		}
+	}
+
+	private static boolean matches(Set<String> values, String value) {
+		return values.isEmpty() || values.contains(value);
+	}
+
+	private static boolean between(XMLGregorianCalendar value,
+			XMLGregorianCalendar start, XMLGregorianCalendar end) {
+		if (start == null && end == null) {
+			return true;
+		}
+		if (value == null) {
+			return false;
+		}
+
+		return (start == null || value.compare(start) != DatatypeConstants.LESSER)
+				&& (end == null || value.compare(end) != DatatypeConstants.GREATER);
+	}
+}
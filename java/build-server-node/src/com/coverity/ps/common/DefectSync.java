@@ -0,0 +1,565 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.coverity.ps.common.config.ConfigurationManager;
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.MergedDefectDataObj;
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+
+/**
+ * Incremental sync of the merged defects of a project or of streams. The
+ * full defect records of the last sync and the time it started are kept in
+ * a local state file, in CID order. A sync pulls the CID list, the CIDs
+ * triaged or fixed since the last sync and the CIDs now fixed, which are
+ * cheap compared with full defect records. Full records are then fetched
+ * only for new and changed CIDs, including those whose fixed status differs
+ * from the stored one. The stored and fetched records are merged one at a
+ * time into a new state file and passed to a handler on the way, so neither
+ * is held in memory as a whole; CIDs that are gone are dropped. The first
+ * sync, or a sync without a state file, fetches everything.
+ *
+ * When the defect-sync-dir configuration tag names a directory, DefectQuery
+ * serves its results from a sync, with one state file per project or set of
+ * streams in that directory. Call commit() once the result has been
+ * processed so that a failed run is repeated on the next sync.
+ */
+public class DefectSync {
+	private static final int STATE_VERSION = 3;
+	private static final String FIXED_STATUS = "Fixed";
+	// CIDs whose records are fetched at a time
+	private static final int FETCH_CHUNK = 10000;
+	// overlap between syncs to tolerate clock skew between this host and the CIM
+	private static final long SYNC_OVERLAP_MILLIS = 10 * 60 * 1000L;
+	private final String project;
+	private final List<String> streams;
+	private final String scope;
+	private final File stateFile;
+	private final DatatypeFactory datatypeFactory;
+	private long lastSync = -1;
+	// stored CIDs, and those of them that were fixed, sorted
+	private long[] cids = new long[0];
+	private long[] fixedCids = new long[0];
+	private Result pending;
+
+	/**
+	 * Result of one sync
+	 */
+	public static class Result {
+		private final boolean fullSync;
+		private final int fetched;
+		private final List<Long> removedCids;
+		private final long syncTime;
+		private final long[] cids;
+		private final long[] fixedCids;
+		private final File tempFile;
+
+		Result(boolean fullSync, int fetched, List<Long> removedCids,
+				long syncTime, long[] cids, long[] fixedCids, File tempFile) {
+			this.fullSync = fullSync;
+			this.fetched = fetched;
+			this.removedCids = removedCids;
+			this.syncTime = syncTime;
+			this.cids = cids;
+			this.fixedCids = fixedCids;
+			this.tempFile = tempFile;
+		}
+
+		/**
+		 * True if no previous state was available and all defects were fetched
+		 */
+		public boolean isFullSync() {
+			return fullSync;
+		}
+
+		/**
+		 * Number of new and changed defects fetched (all defects for a full
+		 * sync)
+		 */
+		public int getFetchedDefects() {
+			return fetched;
+		}
+
+		/**
+		 * CIDs that are no longer part of the project or streams
+		 */
+		public List<Long> getRemovedCids() {
+			return removedCids;
+		}
+
+		/**
+		 * Number of defects passed to the handler, the stored ones merged
+		 * with those fetched
+		 */
+		public int getTotalCids() {
+			return cids.length;
+		}
+	}
+
+	public DefectSync(String project, File stateFile) {
+		this(project, null, stateFile);
+	}
+
+	public DefectSync(List<String> streams, File stateFile) {
+		this(null, streams, stateFile);
+	}
+
+	private DefectSync(String project, List<String> streams, File stateFile) {
+		this.project = project;
+		this.streams = streams;
+		this.scope = project != null ? DefectCache.projectScope(project)
+				: DefectCache.streamsScope(streams);
+		this.stateFile = stateFile;
+		try {
+			this.datatypeFactory = DatatypeFactory.newInstance();
+		} catch (DatatypeConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+		if (stateFile.exists()) {
+			try {
+				load();
+			} catch (IOException e) {
+				System.err.println("Unable to read defect sync state "
+						+ stateFile + ", doing a full sync: " + e);
+				this.lastSync = -1;
+				this.cids = new long[0];
+				this.fixedCids = new long[0];
+			}
+		}
+	}
+
+	/**
+	 * True if the defect-sync-dir configuration tag names a directory
+	 */
+	public static boolean isEnabled() {
+		return getDirectory() != null;
+	}
+
+	/**
+	 * Syncs the project's merged defects in defect-sync-dir and passes all
+	 * of them to the handler, in CID order
+	 */
+	public static void syncProject(String project,
+			DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		syncAndCommit(new DefectSync(project, getStateFile(DefectCache
+				.projectScope(project))), handler);
+	}
+
+	/**
+	 * Syncs the streams' merged defects in defect-sync-dir and passes all of
+	 * them to the handler, in CID order
+	 */
+	public static void syncStreams(List<String> streams,
+			DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		syncAndCommit(new DefectSync(streams, getStateFile(DefectCache
+				.streamsScope(streams))), handler);
+	}
+
+	/**
+	 * The stored records mirror the CIM at the time of the sync, not what
+	 * the caller does with them, so they are committed right away
+	 */
+	private static synchronized void syncAndCommit(DefectSync defectSync,
+			DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		try {
+			defectSync.sync(handler);
+		} catch (IOException e) {
+			throw new CovRemoteServiceException_Exception(e.toString(), null, e);
+		}
+		try {
+			defectSync.commit();
+		} catch (IOException e) {
+			System.err.println("Unable to write defect sync state "
+					+ defectSync.stateFile + ": " + e);
+		}
+	}
+
+	private static File getDirectory() {
+		String directory = ConfigurationManager.getInstance().getDefectSyncDir();
+		return directory != null && directory.length() > 0 ? new File(directory)
+				: null;
+	}
+
+	private static File getStateFile(String scope) {
+		File directory = getDirectory();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			System.err.println("Unable to create defect sync directory " + directory);
+		}
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(scope.getBytes("UTF-8"));
+			StringBuilder name = new StringBuilder();
+			for (byte b : digest.digest()) {
+				name.append(String.format("%02x", b));
+			}
+			name.append(".sync");
+			return new File(directory, name.toString());
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Syncs the defects and passes each of them, in CID order, to the
+	 * handler if one is given. The new state is written to a temporary file
+	 * that commit() puts in place.
+	 */
+	public Result sync(DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception, IOException {
+		final long syncTime = System.currentTimeMillis();
+		this.pending = null;
+
+		long[] currentCids = toSortedArray(getCids(new MergedDefectFilterSpecDataObj()));
+		boolean fullSync = this.lastSync < 0;
+		TreeSet<Long> fetchCids = new TreeSet<Long>();
+		List<Long> removedCids = new ArrayList<Long>();
+		if (fullSync) {
+			// fetched by CID so that the defect cache is bypassed
+			for (long cid : currentCids) {
+				fetchCids.add(cid);
+			}
+		} else {
+			// changed since the last sync
+			XMLGregorianCalendar since = toCalendar(this.lastSync - SYNC_OVERLAP_MILLIS);
+			MergedDefectFilterSpecDataObj triaged = new MergedDefectFilterSpecDataObj();
+			triaged.setLastTriagedStartDate(since);
+			fetchCids.addAll(getCids(triaged));
+			MergedDefectFilterSpecDataObj fixed = new MergedDefectFilterSpecDataObj();
+			fixed.setLastFixedStartDate(since);
+			fetchCids.addAll(getCids(fixed));
+
+			// every snapshot moves the last detection date of all outstanding
+			// defects, so it says nothing; a defect detected again after a fix
+			// is found by comparing the fixed CIDs with the stored statuses
+			MergedDefectFilterSpecDataObj fixedNow = new MergedDefectFilterSpecDataObj();
+			fixedNow.getStatusNameList().add(FIXED_STATUS);
+			long[] fixedNowCids = toSortedArray(getCids(fixedNow));
+			for (long cid : this.cids) {
+				boolean wasFixed = Arrays.binarySearch(this.fixedCids, cid) >= 0;
+				if (wasFixed != Arrays.binarySearch(fixedNowCids, cid) >= 0) {
+					fetchCids.add(cid);
+				}
+			}
+
+			// new and removed since the last sync
+			for (long cid : currentCids) {
+				if (Arrays.binarySearch(this.cids, cid) < 0) {
+					fetchCids.add(cid);
+				}
+			}
+			for (long cid : this.cids) {
+				if (Arrays.binarySearch(currentCids, cid) < 0) {
+					removedCids.add(cid);
+					fetchCids.remove(cid);
+				}
+			}
+		}
+
+		// merge the stored and the fetched records, both in CID order
+		UpdateFetcher updates = new UpdateFetcher(fetchCids);
+		StateReader reader = fullSync ? null : new StateReader(this.stateFile, this.scope);
+		StateWriter writer = new StateWriter(new File(this.stateFile.getPath() + ".tmp"),
+				this.scope, syncTime);
+		boolean written = false;
+		try {
+			MergedDefectDataObj stored = reader != null ? reader.next() : null;
+			MergedDefectDataObj update = updates.next();
+			while (stored != null || update != null) {
+				MergedDefectDataObj defect;
+				if (update != null && (stored == null || update.getCid() <= stored.getCid())) {
+					// a fetched record replaces the stored one
+					if (stored != null && stored.getCid().equals(update.getCid())) {
+						stored = reader.next();
+					}
+					defect = update;
+					update = updates.next();
+				} else {
+					defect = stored;
+					stored = reader.next();
+					if (Arrays.binarySearch(currentCids, defect.getCid()) < 0) {
+						continue;
+					}
+				}
+
+				writer.write(defect);
+				if (handler != null) {
+					handler.handle(defect);
+				}
+			}
+			written = true;
+		} finally {
+			if (reader != null) {
+				reader.close();
+			}
+			writer.close();
+			if (!written) {
+				writer.file.delete();
+			}
+		}
+
+		this.pending = new Result(fullSync, updates.count, removedCids, syncTime,
+				toSortedArray(writer.cids), toSortedArray(writer.fixedCids),
+				writer.file);
+		return this.pending;
+	}
+
+	/**
+	 * Puts the state written by the last sync in place
+	 */
+	public void commit() throws IOException {
+		if (this.pending == null) {
+			return;
+		}
+
+		if (this.stateFile.exists() && !this.stateFile.delete()) {
+			throw new IOException("unable to replace " + this.stateFile);
+		}
+		if (!this.pending.tempFile.renameTo(this.stateFile)) {
+			throw new IOException("unable to rename " + this.pending.tempFile);
+		}
+
+		this.lastSync = this.pending.syncTime;
+		this.cids = this.pending.cids;
+		this.fixedCids = this.pending.fixedCids;
+		this.pending = null;
+	}
+
+	/**
+	 * Reads the time of the last sync and the stored CIDs; the records are
+	 * decoded one at a time and dropped
+	 */
+	private void load() throws IOException {
+		StateReader reader = new StateReader(this.stateFile, this.scope);
+		try {
+			List<Long> stateCids = new ArrayList<Long>();
+			List<Long> stateFixedCids = new ArrayList<Long>();
+			MergedDefectDataObj defect;
+			while ((defect = reader.next()) != null) {
+				stateCids.add(defect.getCid());
+				if (FIXED_STATUS.equals(defect.getStatus())) {
+					stateFixedCids.add(defect.getCid());
+				}
+			}
+			this.lastSync = reader.syncTime;
+			this.cids = toSortedArray(stateCids);
+			this.fixedCids = toSortedArray(stateFixedCids);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads the records of a state file one at a time
+	 */
+	private static class StateReader {
+		private final DataInputStream in;
+		private final MergedDefectCodec codec = new MergedDefectCodec();
+		private final long syncTime;
+		private boolean closed = false;
+
+		StateReader(File file, String scope) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(
+					new GZIPInputStream(new FileInputStream(file))));
+			try {
+				if (this.in.readInt() != STATE_VERSION) {
+					throw new IOException("unsupported state version");
+				}
+				if (!scope.equals(this.in.readUTF())) {
+					throw new IOException("state belongs to another project or streams");
+				}
+				this.syncTime = this.in.readLong();
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Returns the next record, or null at the end of the file
+		 */
+		MergedDefectDataObj next() throws IOException {
+			if (this.closed || !this.in.readBoolean()) {
+				close();
+				return null;
+			}
+
+			return this.codec.read(this.in);
+		}
+
+		void close() {
+			if (!this.closed) {
+				this.closed = true;
+				try {
+					this.in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the records of a state file one at a time
+	 */
+	private static class StateWriter {
+		private final File file;
+		private final DataOutputStream out;
+		private final MergedDefectCodec codec = new MergedDefectCodec();
+		private final List<Long> cids = new ArrayList<Long>();
+		private final List<Long> fixedCids = new ArrayList<Long>();
+
+		StateWriter(File file, String scope, long syncTime) throws IOException {
+			this.file = file;
+			this.out = new DataOutputStream(new BufferedOutputStream(
+					new GZIPOutputStream(new FileOutputStream(file))));
+			this.out.writeInt(STATE_VERSION);
+			this.out.writeUTF(scope);
+			this.out.writeLong(syncTime);
+		}
+
+		void write(MergedDefectDataObj defect) throws IOException {
+			this.out.writeBoolean(true);
+			this.codec.write(this.out, defect);
+			this.cids.add(defect.getCid());
+			if (FIXED_STATUS.equals(defect.getStatus())) {
+				this.fixedCids.add(defect.getCid());
+			}
+		}
+
+		void close() throws IOException {
+			try {
+				this.out.writeBoolean(false);
+			} finally {
+				this.out.close();
+			}
+		}
+	}
+
+	/**
+	 * Fetches the records of the given CIDs a chunk at a time and returns
+	 * them one at a time, in CID order
+	 */
+	private class UpdateFetcher {
+		private final Iterator<Long> cids;
+		private Iterator<MergedDefectDataObj> chunk = Collections
+				.<MergedDefectDataObj> emptyList().iterator();
+		private int count = 0;
+
+		UpdateFetcher(Collection<Long> cids) {
+			this.cids = cids.iterator();
+		}
+
+		MergedDefectDataObj next() throws CovRemoteServiceException_Exception {
+			while (!this.chunk.hasNext()) {
+				if (!this.cids.hasNext()) {
+					return null;
+				}
+				List<Long> chunkCids = new ArrayList<Long>();
+				while (this.cids.hasNext() && chunkCids.size() < FETCH_CHUNK) {
+					chunkCids.add(this.cids.next());
+				}
+				List<MergedDefectDataObj> defects = getMergedDefects(chunkCids);
+				Collections.sort(defects, new Comparator<MergedDefectDataObj>() {
+					public int compare(MergedDefectDataObj a, MergedDefectDataObj b) {
+						return a.getCid().compareTo(b.getCid());
+					}
+				});
+				this.chunk = defects.iterator();
+			}
+
+			this.count++;
+			return this.chunk.next();
+		}
+	}
+
+	private List<Long> getCids(MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		if (this.project != null) {
+			return CimProxy.getInstance().getCIDsForProject(this.project, filterSpec);
+		}
+		return CimProxy.getInstance().getCIDsForStreams(this.streams, filterSpec);
+	}
+
+	private List<MergedDefectDataObj> getMergedDefects(Collection<Long> cids)
+			throws CovRemoteServiceException_Exception {
+		if (this.project != null) {
+			return CimProxy.getInstance().getMergedDefectsForCids(this.project, cids);
+		}
+		return CimProxy.getInstance().getMergedDefectsForStreamCids(this.streams, cids);
+	}
+
+	private static long[] toSortedArray(List<Long> values) {
+		long[] result = new long[values.size()];
+		int i = 0;
+		for (Long value : values) {
+			result[i++] = value.longValue();
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	private XMLGregorianCalendar toCalendar(long millis) {
+		GregorianCalendar calendar = new GregorianCalendar();
+		calendar.setTimeInMillis(millis);
+		return this.datatypeFactory.newXMLGregorianCalendar(calendar);
+	}
+
+	/*
+	 * Main command line driver
+	 */
+	public static void main(String[] args) {
+		try {
+			FlightEvents.startRecording(DefectSync.class.getSimpleName());
+			if (args.length == 2) {
+				DefectSync defectSync = new DefectSync(args[0], new File(args[1]));
+				long start = System.currentTimeMillis();
+				Result result = defectSync.sync(null);
+				System.out.println((result.isFullSync() ? "full" : "incremental")
+						+ " sync: cids=" + result.getTotalCids()
+						+ ", fetched=" + result.getFetchedDefects()
+						+ ", removed=" + result.getRemovedCids().size()
+						+ ", time=" + (System.currentTimeMillis() - start) + "ms");
+				defectSync.commit();
+			} else {
+				System.err.println("This program incrementally syncs the merged defects of a project.");
+				System.err.println("usage: java " + DefectSync.class.getName() + " <project-name> <state-file>");
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			MetricsRegistry.getInstance().dump(DefectSync.class.getSimpleName());
+		}
+	}
+}
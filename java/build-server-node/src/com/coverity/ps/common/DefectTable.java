@@ -0,0 +1,251 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.coverity.ws.v4.MergedDefectDataObj;
+
+/**
+ * Compact, column-oriented table of the merged defect fields used by the
+ * reports. CIDs are held in a long array. Checker, component, status, owner,
+ * severity and file names are held as int codes into one dictionary per
+ * column, so every distinct string is stored once no matter how many defects
+ * share it. Rows are addressed by index.
+ */
+public class DefectTable implements DefectHandler<MergedDefectDataObj> {
+	/**
+	 * Dictionary-encoded columns
+	 */
+	public enum Column {
+		CHECKER, COMPONENT, STATUS, OWNER, SEVERITY, FILE
+	}
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int NULL_CODE = -1;
+	private int size = 0;
+	private long[] cids = new long[INITIAL_CAPACITY];
+	private final int[][] codes = new int[Column.values().length][INITIAL_CAPACITY];
+	private final Dictionary[] dictionaries = new Dictionary[Column.values().length];
+
+	public DefectTable() {
+		for (int i = 0; i < this.dictionaries.length; i++) {
+			this.dictionaries[i] = new Dictionary();
+		}
+	}
+
+	/**
+	 * Builds a table from all defects of the given iterator
+	 */
+	public static DefectTable from(Iterator<MergedDefectDataObj> defects) {
+		DefectTable table = new DefectTable();
+		while (defects.hasNext()) {
+			table.add(defects.next());
+		}
+		table.trim();
+		return table;
+	}
+
+	public static DefectTable from(List<MergedDefectDataObj> defects) {
+		return from(defects.iterator());
+	}
+
+	/**
+	 * Appends a row for the given defect and returns its index
+	 */
+	public int add(MergedDefectDataObj defect) {
+		if (this.size == this.cids.length) {
+			resize(this.size * 2);
+		}
+
+		int row = this.size++;
+		this.cids[row] = defect.getCid() != null ? defect.getCid().longValue() : 0;
+		setValue(Column.CHECKER, row, defect.getCheckerName());
+		setValue(Column.COMPONENT, row, defect.getComponentName());
+		setValue(Column.STATUS, row, defect.getStatus());
+		setValue(Column.OWNER, row, defect.getOwner());
+		setValue(Column.SEVERITY, row, defect.getSeverity());
+		setValue(Column.FILE, row, defect.getFilePathname());
+		return row;
+	}
+
+	public void handle(MergedDefectDataObj defect) {
+		add(defect);
+	}
+
+	/**
+	 * Releases unused capacity
+	 */
+	public void trim() {
+		if (this.size < this.cids.length) {
+			resize(Math.max(this.size, 1));
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public long getCid(int row) {
+		return this.cids[row];
+	}
+
+	public String getCheckerName(int row) {
+		return getValue(Column.CHECKER, row);
+	}
+
+	public String getComponentName(int row) {
+		return getValue(Column.COMPONENT, row);
+	}
+
+	public String getStatus(int row) {
+		return getValue(Column.STATUS, row);
+	}
+
+	public String getOwner(int row) {
+		return getValue(Column.OWNER, row);
+	}
+
+	public String getSeverity(int row) {
+		return getValue(Column.SEVERITY, row);
+	}
+
+	public String getFilePathname(int row) {
+		return getValue(Column.FILE, row);
+	}
+
+	public String getValue(Column column, int row) {
+		return this.dictionaries[column.ordinal()].get(getCode(column, row));
+	}
+
+	/**
+	 * Returns the dictionary code of a row's value, or -1 for null
+	 */
+	public int getCode(Column column, int row) {
+		return this.codes[column.ordinal()][row];
+	}
+
+	/**
+	 * Returns the dictionary code of the given value, or -1 if no row has it
+	 */
+	public int lookup(Column column, String value) {
+		return this.dictionaries[column.ordinal()].lookup(value);
+	}
+
+	/**
+	 * Returns all row indices
+	 */
+	public int[] getRows() {
+		int[] rows = new int[this.size];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = i;
+		}
+		return rows;
+	}
+
+	/**
+	 * Groups the given rows by the value of a column, in order of first
+	 * occurrence. Rows with a null value are grouped under null.
+	 */
+	public Map<String, int[]> groupBy(Column column, int[] rows) {
+		int[] columnCodes = this.codes[column.ordinal()];
+		Dictionary dictionary = this.dictionaries[column.ordinal()];
+
+		// count rows per code; slot 0 holds null
+		int[] counts = new int[dictionary.size() + 1];
+		for (int row : rows) {
+			counts[columnCodes[row] + 1]++;
+		}
+
+		Map<String, int[]> groups = new LinkedHashMap<String, int[]>();
+		int[][] groupRows = new int[counts.length][];
+		int[] fill = new int[counts.length];
+		for (int row : rows) {
+			int slot = columnCodes[row] + 1;
+			if (groupRows[slot] == null) {
+				groupRows[slot] = new int[counts[slot]];
+				groups.put(dictionary.get(slot - 1), groupRows[slot]);
+			}
+			groupRows[slot][fill[slot]++] = row;
+		}
+
+		return groups;
+	}
+
+	public Map<String, int[]> groupBy(Column column) {
+		return groupBy(column, getRows());
+	}
+
+	/**
+	 * Counts the given rows by the value of a column
+	 */
+	public Map<String, Integer> countBy(Column column, int[] rows) {
+		Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+		for (Map.Entry<String, int[]> group : groupBy(column, rows).entrySet()) {
+			counts.put(group.getKey(), group.getValue().length);
+		}
+		return counts;
+	}
+
+	/**
+	 * Concatenates two row sets
+	 */
+	public static int[] concat(int[] rows, int[] moreRows) {
+		int[] result = Arrays.copyOf(rows, rows.length + moreRows.length);
+		System.arraycopy(moreRows, 0, result, rows.length, moreRows.length);
+		return result;
+	}
+
+	private void setValue(Column column, int row, String value) {
+		this.codes[column.ordinal()][row] = this.dictionaries[column.ordinal()]
+				.intern(value);
+	}
+
+	private void resize(int capacity) {
+		this.cids = Arrays.copyOf(this.cids, capacity);
+		for (int i = 0; i < this.codes.length; i++) {
+			this.codes[i] = Arrays.copyOf(this.codes[i], capacity);
+		}
+	}
+
+	/**
+	 * Maps each distinct string of a column to a dense int code
+	 */
+	private static class Dictionary {
+		private final Map<String, Integer> codes = new HashMap<String, Integer>();
+		private final List<String> values = new ArrayList<String>();
+
+		int intern(String value) {
+			if (value == null) {
+				return NULL_CODE;
+			}
+
+			Integer code = this.codes.get(value);
+			if (code == null) {
+				code = this.values.size();
+				this.codes.put(value, code);
+				this.values.add(value);
+			}
+			return code.intValue();
+		}
+
+		int lookup(String value) {
+			Integer code = value != null ? this.codes.get(value) : null;
+			return code != null ? code.intValue() : NULL_CODE;
+		}
+
+		String get(int code) {
+			return code == NULL_CODE ? null : this.values.get(code);
+		}
+
+		int size() {
+			return this.values.size();
+		}
+	}
+}
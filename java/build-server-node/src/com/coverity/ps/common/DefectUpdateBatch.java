@@ -0,0 +1,103 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.coverity.ws.v4.DefectStateCustomAttributeValueDataObj;
+import com.coverity.ws.v4.DefectStateSpecDataObj;
+
+/**
+ * Collects defect state changes so they can be applied with a few bulk calls.
+ * CIDs that share the same scope pattern and the same defect state are grouped
+ * together; see CimProxy.updateDefects().
+ */
+public class DefectUpdateBatch {
+	private final Map<String, Group> groups = new LinkedHashMap<String, Group>();
+	private int size = 0;
+
+	/**
+	 * CIDs that receive the same defect state within the same scope
+	 */
+	static class Group {
+		private final String scopePattern;
+		private final DefectStateSpecDataObj defectStateSpec;
+		private final List<Long> cids = new ArrayList<Long>();
+
+		Group(String scopePattern, DefectStateSpecDataObj defectStateSpec) {
+			this.scopePattern = scopePattern;
+			this.defectStateSpec = defectStateSpec;
+		}
+
+		String getScopePattern() {
+			return this.scopePattern;
+		}
+
+		DefectStateSpecDataObj getDefectStateSpec() {
+			return this.defectStateSpec;
+		}
+
+		List<Long> getCids() {
+			return this.cids;
+		}
+	}
+
+	/**
+	 * Adds a defect update
+	 * 
+	 * @param cid merged defect id
+	 * @param scopePattern triage scope pattern, e.g. "project/*"
+	 * @param defectStateSpec new defect state
+	 */
+	public void add(Long cid, String scopePattern,
+			DefectStateSpecDataObj defectStateSpec) {
+		final String key = scopePattern + '\0' + getKey(defectStateSpec);
+		Group group = this.groups.get(key);
+		if (group == null) {
+			group = new Group(scopePattern, defectStateSpec);
+			this.groups.put(key, group);
+		}
+		group.getCids().add(cid);
+		this.size++;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	Collection<Group> getGroups() {
+		return this.groups.values();
+	}
+
+	private static String getKey(DefectStateSpecDataObj spec) {
+		StringBuilder key = new StringBuilder();
+		key.append(spec.getAction()).append('\0');
+		key.append(spec.getClassification()).append('\0');
+		key.append(spec.getComment()).append('\0');
+		key.append(spec.getExternalReference()).append('\0');
+		key.append(spec.getOwner()).append('\0');
+		key.append(spec.getSeverity()).append('\0');
+		key.append(spec.getStatus());
+		for (DefectStateCustomAttributeValueDataObj attrib : spec
+				.getDefectStateCustomAttributeValues()) {
+			key.append('\0');
+			if (attrib.getAttributeDefinitionId() != null) {
+				key.append(attrib.getAttributeDefinitionId().getName());
+			}
+			key.append('=');
+			if (attrib.getAttributeValueId() != null) {
+				key.append(attrib.getAttributeValueId().getName());
+			}
+		}
+
+		return key.toString();
+	}
+}
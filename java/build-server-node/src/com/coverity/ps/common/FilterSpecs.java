@@ -0,0 +1,78 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+
+/**
+ * Helpers for CIM filter specs
+ */
+public class FilterSpecs {
+	private FilterSpecs() {
+	}
+
+	/**
+	 * Returns a copy of the given filter spec. Lists are copied, their
+	 * elements are shared.
+	 */
+	public static MergedDefectFilterSpecDataObj copy(
+			MergedDefectFilterSpecDataObj filterSpec) {
+		MergedDefectFilterSpecDataObj copy = new MergedDefectFilterSpecDataObj();
+		copy.getCidList().addAll(filterSpec.getCidList());
+		copy.getCheckerSubcategoryFilterSpecList().addAll(
+				filterSpec.getCheckerSubcategoryFilterSpecList());
+		copy.getFilenamePatternList().addAll(filterSpec.getFilenamePatternList());
+		copy.getStreamSnapshotFilterSpecIncludeList().addAll(
+				filterSpec.getStreamSnapshotFilterSpecIncludeList());
+		copy.getStreamSnapshotFilterSpecExcludeList().addAll(
+				filterSpec.getStreamSnapshotFilterSpecExcludeList());
+		copy.getComponentIdList().addAll(filterSpec.getComponentIdList());
+		copy.getStatusNameList().addAll(filterSpec.getStatusNameList());
+		copy.getClassificationNameList().addAll(
+				filterSpec.getClassificationNameList());
+		copy.getActionNameList().addAll(filterSpec.getActionNameList());
+		copy.getSeverityNameList().addAll(filterSpec.getSeverityNameList());
+		copy.getOwnerNameList().addAll(filterSpec.getOwnerNameList());
+		copy.getAttributeDefinitionValueFilterMap().addAll(
+				filterSpec.getAttributeDefinitionValueFilterMap());
+		copy.setComponentIdExclude(filterSpec.isComponentIdExclude());
+		copy.setDefectPropertyKey(filterSpec.getDefectPropertyKey());
+		copy.setDefectPropertyPattern(filterSpec.getDefectPropertyPattern());
+		copy.setExternalReferencePattern(filterSpec.getExternalReferencePattern());
+		copy.setFirstDetectedEndDate(filterSpec.getFirstDetectedEndDate());
+		copy.setFirstDetectedStartDate(filterSpec.getFirstDetectedStartDate());
+		copy.setFunctionNamePattern(filterSpec.getFunctionNamePattern());
+		copy.setLastDetectedEndDate(filterSpec.getLastDetectedEndDate());
+		copy.setLastDetectedStartDate(filterSpec.getLastDetectedStartDate());
+		copy.setLastFixedEndDate(filterSpec.getLastFixedEndDate());
+		copy.setLastFixedStartDate(filterSpec.getLastFixedStartDate());
+		copy.setLastTriagedEndDate(filterSpec.getLastTriagedEndDate());
+		copy.setLastTriagedStartDate(filterSpec.getLastTriagedStartDate());
+		copy.setMaxCid(filterSpec.getMaxCid());
+		copy.setMaxOccurrenceCount(filterSpec.getMaxOccurrenceCount());
+		copy.setMinCid(filterSpec.getMinCid());
+		copy.setMinOccurrenceCount(filterSpec.getMinOccurrenceCount());
+		copy.setStreamSnapshotExcludeAll(filterSpec.isStreamSnapshotExcludeAll());
+		copy.setStreamSnapshotIncludeAll(filterSpec.isStreamSnapshotIncludeAll());
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of the given filter spec narrowed to the CID range
+	 * [minCid, maxCid]; either bound may be null. The range is intersected
+	 * with any CID range already set on the filter spec.
+	 */
+	public static MergedDefectFilterSpecDataObj withCidRange(
+			MergedDefectFilterSpecDataObj filterSpec, Long minCid, Long maxCid) {
+		MergedDefectFilterSpecDataObj copy = copy(filterSpec);
+		if (minCid != null
+				&& (copy.getMinCid() == null || copy.getMinCid().longValue() < minCid.longValue())) {
+			copy.setMinCid(minCid);
+		}
+		if (maxCid != null
+				&& (copy.getMaxCid() == null || copy.getMaxCid().longValue() > maxCid.longValue())) {
+			copy.setMaxCid(maxCid);
+		}
+		return copy;
+	}
+}
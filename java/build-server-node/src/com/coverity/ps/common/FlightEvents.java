@@ -0,0 +1,209 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Java Flight Recorder events of the integration phases: CIM calls, SCM
+ * lookups, configuration parsing, report rendering and notifications. The
+ * events are defined at run time through jdk.jfr.EventFactory, by
+ * reflection, so the scripts still build and run on JVMs without JFR; there
+ * every method is a no-op. An event costs a couple of reflective calls when
+ * no recording is running.
+ *
+ * A recording is started by any JFR option of the JVM, or by
+ * startRecording() when the system property coverity.flight-recording-dir
+ * names a directory.
+ */
+public class FlightEvents {
+	public static final String RECORDING_DIR_PROPERTY = "coverity.flight-recording-dir";
+	public static final EventType CIM_CALL = new EventType("CimCall",
+			"CIM Call", "A call to an operation of the CIM web services",
+			new String[] { "operation", "pageOffset", "records", "bytes", "decodedBytes", "fault" },
+			new Class<?>[] { String.class, int.class, int.class, long.class, long.class,
+					boolean.class });
+	public static final EventType SCM_FILE_OWNER = new EventType("ScmFileOwner",
+			"SCM File Owner", "A file owner lookup of an SCM plugin",
+			new String[] { "plugin", "file", "owner", "failed" },
+			new Class<?>[] { String.class, String.class, String.class, boolean.class });
+	public static final EventType CONFIGURATION_PARSE = new EventType("ConfigurationParse",
+			"Configuration Parse", "Parsing of the configuration file",
+			new String[] { "file", "failed" },
+			new Class<?>[] { String.class, boolean.class });
+	public static final EventType REPORT_RENDER = new EventType("ReportRender",
+			"Report Render", "Rendering of the HTML of an e-mail report",
+			new String[] { "report", "defects", "length" },
+			new Class<?>[] { String.class, int.class, int.class });
+	public static final EventType NOTIFY = new EventType("Notify",
+			"Notify", "An e-mail notification sent through the CIM",
+			new String[] { "subject", "users", "recipients", "failed" },
+			new Class<?>[] { String.class, int.class, int.class, boolean.class });
+	private static Object recording;
+
+	/**
+	 * An event type; its fields are set in the order they are declared
+	 */
+	public static class EventType {
+		private Object factory;
+		private Object type;
+		private Method newEvent;
+		private Method isEnabled;
+
+		private EventType(String name, String label, String description,
+				String[] fieldNames, Class<?>[] fieldTypes) {
+			try {
+				Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+				Constructor<?> newAnnotation = annotationElement.getConstructor(Class.class, Object.class);
+				List<Object> annotations = new ArrayList<Object>();
+				annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Name"),
+						"com.coverity.ps." + name));
+				annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Label"), label));
+				annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Description"),
+						description));
+				annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Category"),
+						new String[] { "Coverity", "Integrations" }));
+				// stack traces would cost more than the events themselves
+				annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.StackTrace"),
+						Boolean.FALSE));
+
+				Constructor<?> newField = Class.forName("jdk.jfr.ValueDescriptor")
+						.getConstructor(Class.class, String.class);
+				List<Object> fields = new ArrayList<Object>();
+				for (int i = 0; i < fieldNames.length; i++) {
+					fields.add(newField.newInstance(fieldTypes[i], fieldNames[i]));
+				}
+
+				Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+				Object factory = eventFactory.getMethod("create", List.class, List.class)
+						.invoke(null, annotations, fields);
+				this.type = eventFactory.getMethod("getEventType").invoke(factory);
+				this.isEnabled = this.type.getClass().getMethod("isEnabled");
+				this.newEvent = eventFactory.getMethod("newEvent");
+				this.factory = factory;
+			} catch (Exception e) {
+				// no flight recorder in this JVM
+				this.factory = null;
+			}
+		}
+
+		private Object begin() {
+			if (this.factory == null) {
+				return null;
+			}
+
+			try {
+				if (!((Boolean) this.isEnabled.invoke(this.type)).booleanValue()) {
+					return null;
+				}
+				Object event = this.newEvent.invoke(this.factory);
+				Event.begin.invoke(event);
+				return event;
+			} catch (Exception e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Methods of jdk.jfr.Event
+	 */
+	private static class Event {
+		private static Method begin;
+		private static Method end;
+		private static Method shouldCommit;
+		private static Method set;
+		private static Method commit;
+
+		static {
+			try {
+				Class<?> event = Class.forName("jdk.jfr.Event");
+				begin = event.getMethod("begin");
+				end = event.getMethod("end");
+				shouldCommit = event.getMethod("shouldCommit");
+				set = event.getMethod("set", int.class, Object.class);
+				commit = event.getMethod("commit");
+			} catch (Exception e) {
+				begin = null;
+			}
+		}
+	}
+
+	private FlightEvents() {
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Annotation> annotation(String name)
+			throws ClassNotFoundException {
+		return (Class<? extends Annotation>) Class.forName(name);
+	}
+
+	/**
+	 * Starts timing an event; returns null if the event is not recorded
+	 */
+	public static Object begin(EventType type) {
+		return type.begin();
+	}
+
+	/**
+	 * Ends an event started by begin() and records it with the given field
+	 * values
+	 */
+	public static void commit(Object event, Object... values) {
+		if (event == null) {
+			return;
+		}
+
+		try {
+			Event.end.invoke(event);
+			if (((Boolean) Event.shouldCommit.invoke(event)).booleanValue()) {
+				for (int i = 0; i < values.length; i++) {
+					Event.set.invoke(event, i, values[i]);
+				}
+				Event.commit.invoke(event);
+			}
+		} catch (Exception e) {
+			// the event is lost
+		}
+	}
+
+	/**
+	 * Starts a recording of the run if the system property
+	 * coverity.flight-recording-dir is set. The recording uses the default
+	 * JFR settings and is written to <dir>/<run>.jfr when the JVM exits.
+	 */
+	public static synchronized void startRecording(String run) {
+		String dir = System.getProperty(RECORDING_DIR_PROPERTY);
+		if (dir == null || dir.length() == 0 || recording != null) {
+			return;
+		}
+
+		try {
+			File file = new File(dir, run + ".jfr");
+			file.getParentFile().mkdirs();
+			Class<?> configuration = Class.forName("jdk.jfr.Configuration");
+			Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+			Object settings = configuration.getMethod("getConfiguration",
+					String.class).invoke(null, "default");
+			Object newRecording = recordingClass.getConstructor(configuration)
+					.newInstance(settings);
+			recordingClass.getMethod("setName", String.class).invoke(newRecording, run);
+			// java.nio.file.Path is not available before Java 7
+			recordingClass.getMethod("setDestination", Class.forName("java.nio.file.Path"))
+					.invoke(newRecording, File.class.getMethod("toPath").invoke(file));
+			// the flight recorder writes the recording to its destination
+			// when the JVM exits
+			recordingClass.getMethod("setDumpOnExit", boolean.class).invoke(newRecording, true);
+			recordingClass.getMethod("start").invoke(newRecording);
+			recording = newRecording;
+			System.out.println("flight recording to " + file.getPath());
+		} catch (Exception e) {
+			System.err.println("Unable to start flight recording: " + e);
+		}
+	}
+}
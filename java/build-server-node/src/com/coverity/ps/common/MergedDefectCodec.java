@@ -0,0 +1,203 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.coverity.ws.v4.AttributeDefinitionIdDataObj;
+import com.coverity.ws.v4.AttributeValueIdDataObj;
+import com.coverity.ws.v4.DefectStateCustomAttributeValueDataObj;
+import com.coverity.ws.v4.MergedDefectDataObj;
+
+/**
+ * Binary encoding of merged defects. Strings are written once per stream and
+ * referred to by index afterwards, so repeated checker, component, status,
+ * owner and path names cost four bytes each. One codec instance encodes or
+ * decodes one stream.
+ */
+class MergedDefectCodec {
+	private static final int NULL_STRING = -1;
+	private static final int NEW_STRING = -2;
+	private final Map<String, Integer> writtenStrings = new HashMap<String, Integer>();
+	private final List<String> readStrings = new ArrayList<String>();
+	private final DatatypeFactory datatypeFactory;
+
+	MergedDefectCodec() {
+		try {
+			this.datatypeFactory = DatatypeFactory.newInstance();
+		} catch (DatatypeConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	void write(DataOutput out, MergedDefectDataObj defect) throws IOException {
+		writeString(out, defect.getAction());
+		writeString(out, defect.getCheckerName());
+		writeString(out, defect.getCheckerSubcategory());
+		writeLong(out, defect.getCid());
+		writeString(out, defect.getClassification());
+		writeString(out, defect.getComment());
+		writeString(out, defect.getComponentName());
+		writeString(out, defect.getDomain());
+		writeString(out, defect.getExternalReference());
+		writeString(out, defect.getFilePathname());
+		writeCalendar(out, defect.getFirstDetected());
+		writeString(out, defect.getFirstDetectedDescription());
+		writeLong(out, defect.getFirstDetectedSnapshotId());
+		writeString(out, defect.getFirstDetectedStream());
+		writeString(out, defect.getFirstDetectedTarget());
+		writeString(out, defect.getFirstDetectedVersion());
+		writeString(out, defect.getFunctionDisplayName());
+		writeCalendar(out, defect.getLastDetected());
+		writeString(out, defect.getLastDetectedDescription());
+		writeLong(out, defect.getLastDetectedSnapshotId());
+		writeString(out, defect.getLastDetectedStream());
+		writeString(out, defect.getLastDetectedTarget());
+		writeString(out, defect.getLastDetectedVersion());
+		writeCalendar(out, defect.getLastFixed());
+		writeCalendar(out, defect.getLastTriaged());
+		writeString(out, defect.getMergeKey());
+		out.writeInt(defect.getOccurrenceCount() != null ? defect
+				.getOccurrenceCount().intValue() : -1);
+		writeString(out, defect.getOwner());
+		writeString(out, defect.getSeverity());
+		writeString(out, defect.getStatus());
+		writeString(out, defect.getTranslatedOwner());
+
+		List<DefectStateCustomAttributeValueDataObj> attributes = defect
+				.getDefectStateCustomAttributeValues();
+		out.writeInt(attributes.size());
+		for (DefectStateCustomAttributeValueDataObj attribute : attributes) {
+			writeString(out, attribute.getAttributeDefinitionId() != null ? attribute
+					.getAttributeDefinitionId().getName() : null);
+			writeString(out, attribute.getAttributeValueId() != null ? attribute
+					.getAttributeValueId().getName() : null);
+		}
+	}
+
+	MergedDefectDataObj read(DataInput in) throws IOException {
+		MergedDefectDataObj defect = new MergedDefectDataObj();
+		defect.setAction(readString(in));
+		defect.setCheckerName(readString(in));
+		defect.setCheckerSubcategory(readString(in));
+		defect.setCid(readLong(in));
+		defect.setClassification(readString(in));
+		defect.setComment(readString(in));
+		defect.setComponentName(readString(in));
+		defect.setDomain(readString(in));
+		defect.setExternalReference(readString(in));
+		defect.setFilePathname(readString(in));
+		defect.setFirstDetected(readCalendar(in));
+		defect.setFirstDetectedDescription(readString(in));
+		defect.setFirstDetectedSnapshotId(readLong(in));
+		defect.setFirstDetectedStream(readString(in));
+		defect.setFirstDetectedTarget(readString(in));
+		defect.setFirstDetectedVersion(readString(in));
+		defect.setFunctionDisplayName(readString(in));
+		defect.setLastDetected(readCalendar(in));
+		defect.setLastDetectedDescription(readString(in));
+		defect.setLastDetectedSnapshotId(readLong(in));
+		defect.setLastDetectedStream(readString(in));
+		defect.setLastDetectedTarget(readString(in));
+		defect.setLastDetectedVersion(readString(in));
+		defect.setLastFixed(readCalendar(in));
+		defect.setLastTriaged(readCalendar(in));
+		defect.setMergeKey(readString(in));
+		int occurrenceCount = in.readInt();
+		defect.setOccurrenceCount(occurrenceCount >= 0 ? Integer
+				.valueOf(occurrenceCount) : null);
+		defect.setOwner(readString(in));
+		defect.setSeverity(readString(in));
+		defect.setStatus(readString(in));
+		defect.setTranslatedOwner(readString(in));
+
+		int attributeCount = in.readInt();
+		for (int i = 0; i < attributeCount; i++) {
+			DefectStateCustomAttributeValueDataObj attribute = new DefectStateCustomAttributeValueDataObj();
+			String definition = readString(in);
+			if (definition != null) {
+				AttributeDefinitionIdDataObj definitionId = new AttributeDefinitionIdDataObj();
+				definitionId.setName(definition);
+				attribute.setAttributeDefinitionId(definitionId);
+			}
+			String value = readString(in);
+			if (value != null) {
+				AttributeValueIdDataObj valueId = new AttributeValueIdDataObj();
+				valueId.setName(value);
+				attribute.setAttributeValueId(valueId);
+			}
+			defect.getDefectStateCustomAttributeValues().add(attribute);
+		}
+
+		return defect;
+	}
+
+	void writeString(DataOutput out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(NULL_STRING);
+			return;
+		}
+
+		Integer index = this.writtenStrings.get(value);
+		if (index != null) {
+			out.writeInt(index.intValue());
+			return;
+		}
+
+		this.writtenStrings.put(value, this.writtenStrings.size());
+		out.writeInt(NEW_STRING);
+		byte[] bytes = value.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	String readString(DataInput in) throws IOException {
+		int index = in.readInt();
+		if (index == NULL_STRING) {
+			return null;
+		}
+		if (index != NEW_STRING) {
+			return this.readStrings.get(index);
+		}
+
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		String value = new String(bytes, "UTF-8");
+		this.readStrings.add(value);
+		return value;
+	}
+
+	private void writeLong(DataOutput out, Long value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeLong(value.longValue());
+		}
+	}
+
+	private Long readLong(DataInput in) throws IOException {
+		return in.readBoolean() ? Long.valueOf(in.readLong()) : null;
+	}
+
+	private void writeCalendar(DataOutput out, XMLGregorianCalendar value)
+			throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value.toXMLFormat());
+		}
+	}
+
+	private XMLGregorianCalendar readCalendar(DataInput in) throws IOException {
+		return in.readBoolean() ? this.datatypeFactory
+				.newXMLGregorianCalendar(in.readUTF()) : null;
+	}
+}
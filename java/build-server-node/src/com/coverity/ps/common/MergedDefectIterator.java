@@ -0,0 +1,128 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.MergedDefectDataObj;
+import com.coverity.ws.v4.MergedDefectsPageDataObj;
+
+/**
+ * Iterates over merged defects one page at a time. While the current page is
+ * consumed the next page is fetched in the background, so at most two pages
+ * are held in memory. Page sizes are taken from a PageSizer, so they may
+ * change from one page to the next. Remote errors are rethrown as a RuntimeException wrapping
+ * the CovRemoteServiceException_Exception.
+ */
+public class MergedDefectIterator implements Iterator<MergedDefectDataObj> {
+	private final MergedDefectPageFetcher fetcher;
+	private final ExecutorService executor;
+	private final PageSizer pageSizer;
+	private int offset = 0;
+	private int count = 0;
+	private int total = -1;
+	private boolean exhausted = false;
+	private List<MergedDefectDataObj> page = Collections.emptyList();
+	private int index = 0;
+	private Future<MergedDefectsPageDataObj> nextPage;
+
+	MergedDefectIterator(MergedDefectPageFetcher fetcher,
+			ExecutorService executor, PageSizer pageSizer) {
+		this.fetcher = fetcher;
+		this.executor = executor;
+		this.pageSizer = pageSizer;
+	}
+
+	public boolean hasNext() {
+		while (this.index >= this.page.size()) {
+			if (this.exhausted) {
+				return false;
+			}
+
+			try {
+				MergedDefectsPageDataObj pageData;
+				if (this.nextPage != null) {
+					pageData = CimProxy.waitFor(this.nextPage);
+					this.nextPage = null;
+				} else {
+					pageData = this.fetcher.fetch(CimProxy.createPageSpec(
+							this.offset, this.pageSizer.getPageSize()));
+				}
+				nextPageFetched(pageData);
+			} catch (CovRemoteServiceException_Exception e) {
+				close();
+				throw new RuntimeException(e);
+			}
+		}
+
+		return true;
+	}
+
+	public MergedDefectDataObj next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		return this.page.get(this.index++);
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Total number of records reported by the server, or -1 if no page has
+	 * been fetched yet
+	 */
+	public int getTotalNumberOfRecords() {
+		return this.total;
+	}
+
+	/**
+	 * Stops any background fetch and closes the page fetcher, so that a
+	 * partly written defect cache entry is discarded; the iterator is
+	 * exhausted afterwards
+	 */
+	public void close() {
+		this.exhausted = true;
+		this.page = Collections.emptyList();
+		if (this.nextPage != null) {
+			this.nextPage.cancel(true);
+			this.nextPage = null;
+		}
+		this.fetcher.close();
+	}
+
+	private void nextPageFetched(MergedDefectsPageDataObj pageData) {
+		this.page = pageData.getMergedDefects();
+		this.index = 0;
+		this.count += this.page.size();
+		// the server may return fewer records than requested
+		this.offset += this.page.size();
+		if (pageData.getTotalNumberOfRecords() != null) {
+			this.total = pageData.getTotalNumberOfRecords().intValue();
+		}
+
+		if (this.page.size() == 0 || this.count >= this.total) {
+			this.exhausted = true;
+			this.fetcher.close();
+			return;
+		}
+
+		// prefetch the following page while this one is consumed
+		final int nextOffset = this.offset;
+		final int nextPageSize = this.pageSizer.getPageSize();
+		this.nextPage = this.executor.submit(new Callable<MergedDefectsPageDataObj>() {
+			public MergedDefectsPageDataObj call() throws Exception {
+				return fetcher.fetch(CimProxy.createPageSpec(nextOffset, nextPageSize));
+			}
+		});
+	}
+}
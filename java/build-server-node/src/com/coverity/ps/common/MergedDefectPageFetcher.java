@@ -0,0 +1,21 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.MergedDefectsPageDataObj;
+import com.coverity.ws.v4.PageSpecDataObj;
+
+/**
+ * Fetches one page of merged defects for the given page spec
+ */
+interface MergedDefectPageFetcher {
+	public MergedDefectsPageDataObj fetch(PageSpecDataObj pageSpec)
+			throws CovRemoteServiceException_Exception;
+
+	/**
+	 * Releases what the fetcher holds once no more pages will be fetched,
+	 * whether or not the last page was reached
+	 */
+	public void close();
+}
@@ -0,0 +1,18 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+import com.coverity.ws.v4.MergedDefectsPageDataObj;
+import com.coverity.ws.v4.PageSpecDataObj;
+
+/**
+ * Fetches one page of merged defects of a fixed scope (project or streams)
+ * for the given filter and page spec
+ */
+interface MergedDefectQuery {
+	public MergedDefectsPageDataObj fetch(
+			MergedDefectFilterSpecDataObj filterSpec, PageSpecDataObj pageSpec)
+			throws CovRemoteServiceException_Exception;
+}
@@ -0,0 +1,309 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.coverity.ps.common.config.ConfigurationManager;
+
+/**
+ * Process-wide metrics of the CIM calls: per operation the number of calls,
+ * faults, records and response bytes on the wire and after decompression,
+ * the deepest page offset requested and
+ * a latency histogram, plus gauges registered by other components. At the
+ * end of a run the metrics are written to metrics-dir as JSON and in the
+ * Prometheus text format, for node_exporter's textfile collector.
+ */
+public class MetricsRegistry {
+	// upper bounds of the latency histogram buckets
+	private static final long[] LATENCY_BUCKETS_MILLIS = { 10, 25, 50, 100,
+			250, 500, 1000, 2500, 5000, 10000, 30000, 60000 };
+	private static MetricsRegistry instance;
+	private final Map<String, OperationStats> operations = new TreeMap<String, OperationStats>();
+	private final Map<String, Gauge> gauges = new TreeMap<String, Gauge>();
+	private final Map<String, String> gaugeHelp = new TreeMap<String, String>();
+
+	/**
+	 * Current value of a gauge, read when the metrics are written
+	 */
+	public interface Gauge {
+		public double getValue();
+	}
+
+	/**
+	 * Statistics of one operation
+	 */
+	private static class OperationStats {
+		long calls;
+		long faults;
+		long records;
+		long bytes;
+		long unmeasuredBytes;
+		long decodedBytes;
+		long unmeasuredDecodedBytes;
+		long maxPageOffset = -1;
+		long latencySumMillis;
+		long[] latencyBuckets = new long[LATENCY_BUCKETS_MILLIS.length + 1];
+	}
+
+	/**
+	 * Reads one per-operation value for the Prometheus output
+	 */
+	private interface StatsValue {
+		long get(OperationStats stats);
+	}
+
+	private static final StatsValue CALLS = new StatsValue() {
+		public long get(OperationStats stats) {
+			return stats.calls;
+		}
+	};
+
+	private static final StatsValue FAULTS = new StatsValue() {
+		public long get(OperationStats stats) {
+			return stats.faults;
+		}
+	};
+
+	private static final StatsValue RECORDS = new StatsValue() {
+		public long get(OperationStats stats) {
+			return stats.records;
+		}
+	};
+
+	private static final StatsValue BYTES = new StatsValue() {
+		public long get(OperationStats stats) {
+			return stats.bytes;
+		}
+	};
+
+	private static final StatsValue DECODED_BYTES = new StatsValue() {
+		public long get(OperationStats stats) {
+			return stats.decodedBytes;
+		}
+	};
+
+	private static final StatsValue MAX_PAGE_OFFSET = new StatsValue() {
+		public long get(OperationStats stats) {
+			return stats.maxPageOffset;
+		}
+	};
+
+	private MetricsRegistry() {
+	}
+
+	public static synchronized MetricsRegistry getInstance() {
+		if (instance == null) {
+			instance = new MetricsRegistry();
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Records one call
+	 *
+	 * @param operation name of the CIM operation
+	 * @param pageOffset start index of the requested page, -1 if not paged
+	 * @param records number of records returned
+	 * @param bytes response size on the wire, -1 if unknown
+	 * @param decodedBytes response size after decompression, -1 if unknown
+	 * @param elapsedMillis time taken by the call
+	 * @param fault true if the call failed
+	 */
+	public synchronized void recordCall(String operation, int pageOffset,
+			int records, long bytes, long decodedBytes, long elapsedMillis,
+			boolean fault) {
+		OperationStats stats = this.operations.get(operation);
+		if (stats == null) {
+			stats = new OperationStats();
+			this.operations.put(operation, stats);
+		}
+
+		stats.calls++;
+		if (fault) {
+			stats.faults++;
+		}
+		stats.records += records;
+		if (bytes >= 0) {
+			stats.bytes += bytes;
+		} else {
+			stats.unmeasuredBytes++;
+		}
+		if (decodedBytes >= 0) {
+			stats.decodedBytes += decodedBytes;
+		} else {
+			stats.unmeasuredDecodedBytes++;
+		}
+		stats.maxPageOffset = Math.max(stats.maxPageOffset, pageOffset);
+		stats.latencySumMillis += elapsedMillis;
+		int bucket = 0;
+		while (bucket < LATENCY_BUCKETS_MILLIS.length
+				&& elapsedMillis > LATENCY_BUCKETS_MILLIS[bucket]) {
+			bucket++;
+		}
+		stats.latencyBuckets[bucket]++;
+	}
+
+	/**
+	 * Registers a gauge; the name must be a valid Prometheus metric name
+	 */
+	public synchronized void registerGauge(String name, String help, Gauge gauge) {
+		this.gauges.put(name, gauge);
+		this.gaugeHelp.put(name, help);
+	}
+
+	public synchronized String toJson(String run) {
+		StringBuilder json = new StringBuilder("{\n  \"run\": \"");
+		json.append(escapeJson(run)).append("\",\n  \"timestamp\": ");
+		json.append(System.currentTimeMillis()).append(",\n  \"operations\": {");
+		boolean first = true;
+		for (Map.Entry<String, OperationStats> entry : this.operations.entrySet()) {
+			OperationStats stats = entry.getValue();
+			json.append(first ? "\n" : ",\n");
+			first = false;
+			json.append("    \"").append(escapeJson(entry.getKey())).append("\": {");
+			json.append("\"calls\": ").append(stats.calls);
+			json.append(", \"faults\": ").append(stats.faults);
+			json.append(", \"records\": ").append(stats.records);
+			json.append(", \"bytes\": ").append(stats.bytes);
+			json.append(", \"unmeasuredBytes\": ").append(stats.unmeasuredBytes);
+			json.append(", \"decodedBytes\": ").append(stats.decodedBytes);
+			json.append(", \"unmeasuredDecodedBytes\": ").append(stats.unmeasuredDecodedBytes);
+			json.append(", \"maxPageOffset\": ").append(stats.maxPageOffset);
+			json.append(", \"latencySumMillis\": ").append(stats.latencySumMillis);
+			json.append(", \"latencyBucketsMillis\": {");
+			for (int i = 0; i < stats.latencyBuckets.length; i++) {
+				json.append(i > 0 ? ", \"" : "\"");
+				json.append(i < LATENCY_BUCKETS_MILLIS.length ? String
+						.valueOf(LATENCY_BUCKETS_MILLIS[i]) : "+Inf");
+				json.append("\": ").append(stats.latencyBuckets[i]);
+			}
+			json.append("}}");
+		}
+		json.append(first ? "},\n  \"gauges\": {" : "\n  },\n  \"gauges\": {");
+		first = true;
+		for (Map.Entry<String, Gauge> entry : this.gauges.entrySet()) {
+			json.append(first ? "\n" : ",\n");
+			first = false;
+			json.append("    \"").append(entry.getKey()).append("\": ");
+			json.append(formatValue(entry.getValue().getValue()));
+		}
+		json.append(first ? "}\n}\n" : "\n  }\n}\n");
+		return json.toString();
+	}
+
+	public synchronized String toPrometheus(String run) {
+		String runLabel = "run=\"" + escapeLabel(run) + "\"";
+		StringBuilder text = new StringBuilder();
+		appendOperationMetric(text, "cim_calls_total", "counter", "CIM calls by operation", runLabel, CALLS);
+		appendOperationMetric(text, "cim_call_faults_total", "counter", "Failed CIM calls by operation", runLabel, FAULTS);
+		appendOperationMetric(text, "cim_call_records_total", "counter", "Records returned by CIM calls", runLabel, RECORDS);
+		appendOperationMetric(text, "cim_call_bytes_total", "counter", "Response bytes on the wire of CIM calls whose size was known", runLabel, BYTES);
+		appendOperationMetric(text, "cim_call_decoded_bytes_total", "counter", "Response bytes after decompression of CIM calls whose size was known", runLabel, DECODED_BYTES);
+		appendOperationMetric(text, "cim_call_max_page_offset", "gauge", "Deepest page offset requested", runLabel, MAX_PAGE_OFFSET);
+
+		text.append("# HELP cim_call_latency_seconds Latency of CIM calls\n");
+		text.append("# TYPE cim_call_latency_seconds histogram\n");
+		for (Map.Entry<String, OperationStats> entry : this.operations.entrySet()) {
+			OperationStats stats = entry.getValue();
+			String labels = runLabel + ",operation=\"" + escapeLabel(entry.getKey()) + "\"";
+			long cumulative = 0;
+			for (int i = 0; i < stats.latencyBuckets.length; i++) {
+				cumulative += stats.latencyBuckets[i];
+				String bound = i < LATENCY_BUCKETS_MILLIS.length ? formatValue(LATENCY_BUCKETS_MILLIS[i] / 1000.0)
+						: "+Inf";
+				text.append("cim_call_latency_seconds_bucket{").append(labels)
+						.append(",le=\"").append(bound).append("\"} ")
+						.append(cumulative).append('\n');
+			}
+			text.append("cim_call_latency_seconds_sum{").append(labels).append("} ")
+					.append(formatValue(stats.latencySumMillis / 1000.0)).append('\n');
+			text.append("cim_call_latency_seconds_count{").append(labels).append("} ")
+					.append(stats.calls).append('\n');
+		}
+
+		for (Map.Entry<String, Gauge> entry : this.gauges.entrySet()) {
+			text.append("# HELP ").append(entry.getKey()).append(' ')
+					.append(this.gaugeHelp.get(entry.getKey())).append('\n');
+			text.append("# TYPE ").append(entry.getKey()).append(" gauge\n");
+			text.append(entry.getKey()).append('{').append(runLabel).append("} ")
+					.append(formatValue(entry.getValue().getValue())).append('\n');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Writes the metrics to metrics-dir as run.json and run.prom; does
+	 * nothing if metrics-dir is not configured
+	 */
+	public void dump(String run) {
+		String metricsDir = ConfigurationManager.getInstance().getMetricsDir();
+		if (metricsDir == null) {
+			return;
+		}
+
+		try {
+			File dir = new File(metricsDir);
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("unable to create " + dir);
+			}
+			write(new File(dir, run + ".json"), toJson(run));
+			write(new File(dir, run + ".prom"), toPrometheus(run));
+		} catch (IOException e) {
+			System.err.println("Unable to write metrics to " + metricsDir + ": " + e);
+		}
+	}
+
+	/**
+	 * Writes a file through a temporary file, so that a collector never
+	 * reads a partial file
+	 */
+	private static void write(File file, String content) throws IOException {
+		File tempFile = new File(file.getPath() + ".tmp");
+		Writer out = new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8");
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("unable to replace " + file);
+		}
+		if (!tempFile.renameTo(file)) {
+			throw new IOException("unable to rename " + tempFile);
+		}
+	}
+
+	private void appendOperationMetric(StringBuilder text, String name, String type,
+			String help, String runLabel, StatsValue value) {
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		for (Map.Entry<String, OperationStats> entry : this.operations.entrySet()) {
+			text.append(name).append('{').append(runLabel).append(",operation=\"")
+					.append(escapeLabel(entry.getKey())).append("\"} ")
+					.append(value.get(entry.getValue())).append('\n');
+		}
+	}
+
+	private static String formatValue(double value) {
+		if (value == Math.rint(value) && !Double.isInfinite(value)) {
+			return String.valueOf((long) value);
+		}
+		return String.valueOf(value);
+	}
+
+	private static String escapeJson(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	private static String escapeLabel(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
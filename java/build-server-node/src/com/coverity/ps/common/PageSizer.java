@@ -0,0 +1,71 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+/**
+ * Picks page sizes from the measured cost of earlier pages. The throughput
+ * (records per millisecond) and, where known, the response size per record
+ * are averaged over recent pages; the next page is sized to take about the
+ * target time and to stay under the maximum response size, within the
+ * configured bounds. The page size at most doubles from one page to the next
+ * but may shrink at once. Instances are thread safe and meant to be shared by
+ * all fetches of one kind, so the estimate carries over between calls.
+ */
+public class PageSizer {
+	// weight of the latest page in the moving averages
+	private static final double SMOOTHING = 0.3;
+	private final int minPageSize;
+	private final int maxPageSize;
+	private final long targetMillis;
+	private final long maxBytes;
+	private int pageSize;
+	private double recordsPerMilli = -1;
+	private double bytesPerRecord = -1;
+
+	public PageSizer(int initialPageSize, int minPageSize, int maxPageSize,
+			long targetMillis, long maxBytes) {
+		this.minPageSize = Math.max(1, minPageSize);
+		this.maxPageSize = Math.max(this.minPageSize, maxPageSize);
+		this.targetMillis = Math.max(1, targetMillis);
+		this.maxBytes = maxBytes;
+		this.pageSize = clamp(initialPageSize);
+	}
+
+	public synchronized int getPageSize() {
+		return this.pageSize;
+	}
+
+	/**
+	 * Records the cost of one page
+	 *
+	 * @param records number of records returned
+	 * @param bytes response size after decompression, or -1 if unknown
+	 * @param elapsedMillis time taken by the service call alone
+	 */
+	public synchronized void record(int records, long bytes, long elapsedMillis) {
+		// short pages (the last one of a result set) say little about throughput
+		if (records <= 0 || records < this.pageSize / 2) {
+			return;
+		}
+
+		double rate = records / (double) Math.max(1, elapsedMillis);
+		this.recordsPerMilli = this.recordsPerMilli < 0 ? rate
+				: SMOOTHING * rate + (1 - SMOOTHING) * this.recordsPerMilli;
+		if (bytes > 0) {
+			double size = bytes / (double) records;
+			this.bytesPerRecord = this.bytesPerRecord < 0 ? size
+					: SMOOTHING * size + (1 - SMOOTHING) * this.bytesPerRecord;
+		}
+
+		double next = this.recordsPerMilli * this.targetMillis;
+		if (this.maxBytes > 0 && this.bytesPerRecord > 0) {
+			next = Math.min(next, this.maxBytes / this.bytesPerRecord);
+		}
+		next = Math.min(next, this.pageSize * 2.0);
+		this.pageSize = clamp((int) Math.min(Integer.MAX_VALUE, next));
+	}
+
+	private int clamp(int size) {
+		return Math.max(this.minPageSize, Math.min(this.maxPageSize, size));
+	}
+}
@@ -0,0 +1,118 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPException;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPHandler;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+
+/**
+ * SOAP handler that measures the size of each response after JAX-WS has
+ * decompressed it and leaves it in the response context of the port under
+ * DECODED_BYTES. An uncompressed response with a Content-Length is taken at
+ * that length; any other response is measured by writing the message to a
+ * stream that only counts bytes.
+ */
+class ResponseSizeHandler implements SOAPHandler<SOAPMessageContext> {
+	static final String DECODED_BYTES = "com.coverity.ps.decodedBytes";
+
+	public Set<QName> getHeaders() {
+		return null;
+	}
+
+	public boolean handleMessage(SOAPMessageContext smc) {
+		boolean outbound = ((Boolean) smc
+				.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY)).booleanValue();
+		if (!outbound) {
+			smc.put(DECODED_BYTES, Long.valueOf(measure(smc)));
+			smc.setScope(DECODED_BYTES, MessageContext.Scope.APPLICATION);
+		}
+		return true;
+	}
+
+	public boolean handleFault(SOAPMessageContext smc) {
+		return true;
+	}
+
+	public void close(MessageContext mc) {
+	}
+
+	@SuppressWarnings("unchecked")
+	private static long measure(SOAPMessageContext smc) {
+		Map<String, List<String>> headers = (Map<String, List<String>>) smc
+				.get(MessageContext.HTTP_RESPONSE_HEADERS);
+		long contentLength = getContentLength(headers);
+		if (contentLength >= 0 && !isCompressed(headers)) {
+			return contentLength;
+		}
+
+		CountingOutputStream out = new CountingOutputStream();
+		try {
+			smc.getMessage().writeTo(out);
+		} catch (SOAPException e) {
+			return -1;
+		} catch (IOException e) {
+			return -1;
+		}
+		return out.count;
+	}
+
+	/**
+	 * Content-Length of the response, or -1 if it has none
+	 */
+	static long getContentLength(Map<String, List<String>> headers) {
+		String value = getHeader(headers, "Content-Length");
+		if (value == null) {
+			return -1;
+		}
+
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	static boolean isCompressed(Map<String, List<String>> headers) {
+		return "gzip".equalsIgnoreCase(getHeader(headers, "Content-Encoding"));
+	}
+
+	private static String getHeader(Map<String, List<String>> headers,
+			String name) {
+		if (headers == null) {
+			return null;
+		}
+
+		// header names are case insensitive; the map's keys are not
+		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+			if (name.equalsIgnoreCase(header.getKey())
+					&& !header.getValue().isEmpty()) {
+				return header.getValue().get(0).trim();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Discards what is written and counts the bytes
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		private long count = 0;
+
+		public void write(int b) {
+			this.count++;
+		}
+
+		public void write(byte[] buffer, int offset, int length) {
+			this.count += length;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed-size pool of JAX-WS ports. JAX-WS ports are not safe to share between
+ * threads, so each caller borrows a port for the duration of one call and
+ * releases it afterwards.
+ */
+class ServicePortPool<T> {
+	private final BlockingQueue<T> ports;
+	private final int size;
+
+	ServicePortPool(List<T> ports) {
+		this.size = ports.size();
+		this.ports = new ArrayBlockingQueue<T>(this.size, true, ports);
+	}
+
+	/**
+	 * Waits until a port is available
+	 */
+	T borrow() throws InterruptedException {
+		return this.ports.take();
+	}
+
+	void release(T port) {
+		this.ports.offer(port);
+	}
+
+	int size() {
+		return this.size;
+	}
+}
@@ -0,0 +1,114 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.ObjectFactory;
+
+/**
+ * Coalesces identical calls that are in flight at the same time. The first
+ * caller for a key makes the call on its own thread; callers that arrive with
+ * the same key before it completes wait for it and get the same result (or
+ * the same error) instead of making the call again. Nothing is cached once
+ * the call has completed.
+ */
+class SingleFlight<V> {
+	private static JAXBContext context;
+	private final Map<String, FutureTask<V>> inFlight = new HashMap<String, FutureTask<V>>();
+	private long calls = 0;
+	private long shared = 0;
+
+	V execute(String key, Callable<V> call)
+			throws CovRemoteServiceException_Exception {
+		FutureTask<V> task;
+		boolean leader = false;
+		synchronized (this) {
+			this.calls++;
+			task = this.inFlight.get(key);
+			if (task == null) {
+				task = new FutureTask<V>(call);
+				this.inFlight.put(key, task);
+				leader = true;
+			} else {
+				this.shared++;
+			}
+		}
+
+		if (leader) {
+			try {
+				task.run();
+			} finally {
+				synchronized (this) {
+					this.inFlight.remove(key);
+				}
+			}
+		}
+
+		return CimProxy.waitFor(task);
+	}
+
+	/**
+	 * Number of calls made through this instance
+	 */
+	synchronized long getCalls() {
+		return this.calls;
+	}
+
+	/**
+	 * Number of calls that shared the result of another call in flight
+	 */
+	synchronized long getSharedCalls() {
+		return this.shared;
+	}
+
+	/**
+	 * Builds a key from an operation name and its arguments; CIM data
+	 * objects are compared by their XML form, anything else by toString()
+	 */
+	static String key(String operation, Object... arguments) {
+		StringBuilder key = new StringBuilder(operation);
+		for (Object argument : arguments) {
+			key.append('\u0000');
+			if (argument != null
+					&& argument.getClass().getPackage() == ObjectFactory.class.getPackage()) {
+				key.append(toXml(argument));
+			} else {
+				key.append(argument);
+			}
+		}
+		return key.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String toXml(Object dataObj) {
+		try {
+			Marshaller marshaller = getContext().createMarshaller();
+			StringWriter xml = new StringWriter();
+			marshaller.marshal(new JAXBElement<Object>(new QName("key"),
+					(Class<Object>) dataObj.getClass(), dataObj), xml);
+			return xml.toString();
+		} catch (JAXBException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static synchronized JAXBContext getContext() throws JAXBException {
+		if (context == null) {
+			context = JAXBContext.newInstance(ObjectFactory.class);
+		}
+
+		return context;
+	}
+}
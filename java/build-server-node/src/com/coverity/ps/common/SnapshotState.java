@@ -0,0 +1,148 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import com.coverity.ps.common.config.ConfigurationManager;
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.SnapshotFilterSpecDataObj;
+import com.coverity.ws.v4.SnapshotIdDataObj;
+
+/**
+ * Remembers, per integration and stream, the id of the latest snapshot that
+ * was processed, so integrations can skip streams nothing has been committed
+ * to since their last run. The state is kept in the properties file named by
+ * the snapshot-state-file configuration tag; without it every stream is
+ * treated as changed. Deleting the file forces a full run.
+ */
+public class SnapshotState {
+	private static SnapshotState instance;
+	private final File file;
+	private final Properties state = new Properties();
+
+	private SnapshotState(File file) {
+		this.file = file;
+		if (file != null && file.exists()) {
+			InputStream in = null;
+			try {
+				in = new FileInputStream(file);
+				this.state.load(in);
+			} catch (IOException e) {
+				System.err.println("Unable to read snapshot state file "
+						+ file + ": " + e);
+			} finally {
+				close(in);
+			}
+		}
+	}
+
+	public static synchronized SnapshotState getInstance() {
+		if (instance == null) {
+			String fileName = ConfigurationManager.getInstance()
+					.getSnapshotStateFile();
+			instance = new SnapshotState(fileName != null
+					&& fileName.length() > 0 ? new File(fileName) : null);
+		}
+
+		return instance;
+	}
+
+	public boolean isEnabled() {
+		return this.file != null;
+	}
+
+	/**
+	 * Returns the id of the latest snapshot of the stream, or null if the
+	 * stream has no snapshots
+	 */
+	public Long getLatestSnapshotId(String stream)
+			throws CovRemoteServiceException_Exception {
+		Long latest = null;
+		for (SnapshotIdDataObj snapshot : CimProxy.getInstance()
+				.getSnapshotsForStream(stream, new SnapshotFilterSpecDataObj())) {
+			if (latest == null || snapshot.getId() > latest.longValue()) {
+				latest = snapshot.getId();
+			}
+		}
+
+		return latest;
+	}
+
+	/**
+	 * Returns true if the given integration already processed the stream at
+	 * the given snapshot
+	 */
+	public synchronized boolean isUnchanged(String integration, String stream,
+			Long snapshotId) {
+		if (!isEnabled() || snapshotId == null) {
+			return false;
+		}
+
+		return snapshotId.toString().equals(
+				this.state.getProperty(key(integration, stream)));
+	}
+
+	/**
+	 * Records that the given integration processed the stream at the given
+	 * snapshot; call save() to persist
+	 */
+	public synchronized void update(String integration, String stream,
+			Long snapshotId) {
+		if (snapshotId != null) {
+			this.state.setProperty(key(integration, stream),
+					snapshotId.toString());
+		}
+	}
+
+	/**
+	 * Writes the state file; the old file is only replaced once the new one
+	 * has been written completely
+	 */
+	public synchronized void save() {
+		if (!isEnabled()) {
+			return;
+		}
+
+		File tempFile = new File(this.file.getPath() + ".tmp");
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(tempFile);
+			this.state.store(out, "last processed snapshot per integration/stream");
+			out.close();
+			out = null;
+			if (this.file.exists() && !this.file.delete()) {
+				throw new IOException("unable to replace " + this.file);
+			}
+			if (!tempFile.renameTo(this.file)) {
+				throw new IOException("unable to rename " + tempFile);
+			}
+		} catch (IOException e) {
+			System.err.println("Unable to write snapshot state file "
+					+ this.file + ": " + e);
+		} finally {
+			close(out);
+		}
+	}
+
+	private static String key(String integration, String stream) {
+		return integration + "." + stream;
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
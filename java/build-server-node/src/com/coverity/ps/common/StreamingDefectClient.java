@@ -0,0 +1,382 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.GetMergedDefectsForProject;
+import com.coverity.ws.v4.GetMergedDefectsForStreams;
+import com.coverity.ws.v4.GetStreamDefects;
+import com.coverity.ws.v4.MergedDefectDataObj;
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+import com.coverity.ws.v4.ObjectFactory;
+import com.coverity.ws.v4.PageSpecDataObj;
+import com.coverity.ws.v4.ProjectIdDataObj;
+import com.coverity.ws.v4.StreamDefectDataObj;
+import com.coverity.ws.v4.StreamDefectFilterSpecDataObj;
+import com.coverity.ws.v4.StreamIdDataObj;
+
+/**
+ * Streaming client for the large DefectService read operations. The request
+ * is written as a plain SOAP message with a ws-security user name token (the
+ * same token ClientAuthenticationHandlerWSS adds). The response is parsed with
+ * StAX and every defect is unmarshalled on its own and passed to a handler,
+ * so a page is never held in memory as a whole. The time and response size of
+ * every merged defect page are reported to a PageSizer, and calls go through
+ * the same ConcurrencyLimiter as the JAX-WS ports. Responses may be gzip
+ * compressed, requests too if so configured; connections are left open for
+ * reuse by the JDK keep-alive cache. Instances are thread safe.
+ */
+class StreamingDefectClient {
+	private static final String SOAP_URI = "http://schemas.xmlsoap.org/soap/envelope/";
+	private static final String WSS_URI = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd";
+	private static final String PASSWORD_TEXT = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-username-token-profile-1.0#PasswordText";
+	private static JAXBContext context;
+	private final URL endpoint;
+	private final String user;
+	private final String password;
+	private final PageSizer pageSizer;
+	private final ConcurrencyLimiter limiter;
+	private final boolean gzipRequests;
+	private final boolean gzipResponses;
+	private final TransferStats transferStats;
+	private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+	private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+	private final ObjectFactory objectFactory = new ObjectFactory();
+
+	StreamingDefectClient(URL endpoint, String user, String password,
+			PageSizer pageSizer, ConcurrencyLimiter limiter,
+			boolean gzipRequests, boolean gzipResponses,
+			TransferStats transferStats) {
+		this.endpoint = endpoint;
+		this.user = user;
+		this.password = password;
+		this.pageSizer = pageSizer;
+		this.limiter = limiter;
+		this.gzipRequests = gzipRequests;
+		this.gzipResponses = gzipResponses;
+		this.transferStats = transferStats;
+	}
+
+	/**
+	 * Streams one page of the project's merged defects
+	 *
+	 * @return total number of records reported by the server
+	 */
+	int getMergedDefectsForProject(ProjectIdDataObj projectId,
+			MergedDefectFilterSpecDataObj filterSpec, PageSpecDataObj pageSpec,
+			DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		GetMergedDefectsForProject request = new GetMergedDefectsForProject();
+		request.setProjectId(projectId);
+		request.setFilterSpec(filterSpec);
+		request.setPageSpec(pageSpec);
+		return call(this.objectFactory.createGetMergedDefectsForProject(request),
+				"mergedDefects", MergedDefectDataObj.class, handler, this.pageSizer,
+				pageSpec.getStartIndex());
+	}
+
+	/**
+	 * Streams one page of the streams' merged defects
+	 *
+	 * @return total number of records reported by the server
+	 */
+	int getMergedDefectsForStreams(List<StreamIdDataObj> streamIds,
+			MergedDefectFilterSpecDataObj filterSpec, PageSpecDataObj pageSpec,
+			DefectHandler<MergedDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		GetMergedDefectsForStreams request = new GetMergedDefectsForStreams();
+		request.getStreamIds().addAll(streamIds);
+		request.setFilterSpec(filterSpec);
+		request.setPageSpec(pageSpec);
+		return call(this.objectFactory.createGetMergedDefectsForStreams(request),
+				"mergedDefects", MergedDefectDataObj.class, handler, this.pageSizer,
+				pageSpec.getStartIndex());
+	}
+
+	/**
+	 * Streams the stream defects of the given CIDs
+	 *
+	 * @return number of stream defects
+	 */
+	int getStreamDefects(List<Long> cids,
+			StreamDefectFilterSpecDataObj filterSpec,
+			DefectHandler<StreamDefectDataObj> handler)
+			throws CovRemoteServiceException_Exception {
+		GetStreamDefects request = new GetStreamDefects();
+		request.getCids().addAll(cids);
+		request.setFilterSpec(filterSpec);
+		return call(this.objectFactory.createGetStreamDefects(request),
+				"return", StreamDefectDataObj.class, handler, null, -1);
+	}
+
+	/**
+	 * Sends the request and passes every element with the given local name
+	 * in the response to the handler. Returns the totalNumberOfRecords of the
+	 * response if it has one, the number of elements handled otherwise. The
+	 * page cost is recorded with the given page sizer, if any, and the call
+	 * with the metrics registry under the request's element name.
+	 */
+	private <T> int call(JAXBElement<?> request, String elementName,
+			Class<T> type, final DefectHandler<T> handler, PageSizer sizer,
+			int pageOffset)
+			throws CovRemoteServiceException_Exception {
+		final int[] count = new int[1];
+		DefectHandler<T> counter = new DefectHandler<T>() {
+			public void handle(T defect) {
+				count[0]++;
+				handler.handle(defect);
+			}
+		};
+		this.limiter.acquire();
+		HttpURLConnection connection = null;
+		long start = System.currentTimeMillis();
+		Object event = FlightEvents.begin(FlightEvents.CIM_CALL);
+		boolean success = false;
+		boolean completed = false;
+		long wireBytes = -1;
+		long decodedBytes = -1;
+		try {
+			connection = (HttpURLConnection) this.endpoint.openConnection();
+			connection.setDoOutput(true);
+			connection.setRequestMethod("POST");
+			connection.setRequestProperty("Content-Type", "text/xml; charset=utf-8");
+			connection.setRequestProperty("SOAPAction", "\"\"");
+			if (this.gzipResponses) {
+				connection.setRequestProperty("Accept-Encoding", "gzip");
+			}
+			OutputStream out;
+			if (this.gzipRequests) {
+				connection.setRequestProperty("Content-Encoding", "gzip");
+				out = new BufferedOutputStream(new GZIPOutputStream(connection
+						.getOutputStream()));
+			} else {
+				out = new BufferedOutputStream(connection.getOutputStream());
+			}
+			try {
+				writeRequest(out, request);
+			} finally {
+				out.close();
+			}
+
+			InputStream in = connection.getResponseCode() < 400 ? connection
+					.getInputStream() : connection.getErrorStream();
+			if (in == null) {
+				throw new CovRemoteServiceException_Exception("HTTP "
+						+ connection.getResponseCode() + " from " + this.endpoint, null);
+			}
+			CountingInputStream wire = new CountingInputStream(in);
+			CountingInputStream counted;
+			if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+				counted = new CountingInputStream(new BufferedInputStream(
+						new GZIPInputStream(wire)));
+			} else {
+				counted = new CountingInputStream(new BufferedInputStream(wire));
+			}
+			try {
+				int total;
+				try {
+					total = readResponse(counted, elementName, type, counter);
+					// read to the end so the connection can be reused
+					while (counted.skip(Long.MAX_VALUE) > 0) {
+					}
+				} finally {
+					wireBytes = wire.getCount();
+					decodedBytes = counted.getCount();
+					this.transferStats.record("streaming", wireBytes,
+							decodedBytes);
+				}
+				success = true;
+				completed = true;
+				if (sizer != null) {
+					sizer.record(count[0], counted.getCount(),
+							System.currentTimeMillis() - start);
+				}
+				return total;
+			} finally {
+				counted.close();
+			}
+		} catch (CovRemoteServiceException_Exception e) {
+			// a SOAP fault still means the server is responsive
+			success = e.getCause() == null;
+			throw e;
+		} catch (IOException e) {
+			throw new CovRemoteServiceException_Exception(e.toString(), null, e);
+		} catch (XMLStreamException e) {
+			throw new CovRemoteServiceException_Exception(e.toString(), null, e);
+		} catch (JAXBException e) {
+			throw new CovRemoteServiceException_Exception(e.toString(), null, e);
+		} finally {
+			// only a broken connection is closed; others go back to the
+			// keep-alive cache
+			if (connection != null && !success) {
+				connection.disconnect();
+			}
+			long elapsed = System.currentTimeMillis() - start;
+			this.limiter.release(elapsed, success);
+			MetricsRegistry.getInstance().recordCall(
+					request.getName().getLocalPart(), pageOffset, count[0],
+					wireBytes, decodedBytes, elapsed, !completed);
+			FlightEvents.commit(event, request.getName().getLocalPart(),
+					pageOffset, count[0], wireBytes, decodedBytes, !completed);
+		}
+	}
+
+	private void writeRequest(OutputStream out, JAXBElement<?> request)
+			throws XMLStreamException, JAXBException {
+		XMLStreamWriter writer = this.outputFactory.createXMLStreamWriter(out, "UTF-8");
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.writeStartElement("soapenv", "Envelope", SOAP_URI);
+		writer.writeNamespace("soapenv", SOAP_URI);
+
+		// ws-security header
+		writer.writeStartElement("soapenv", "Header", SOAP_URI);
+		writer.writeStartElement("wsse", "Security", WSS_URI);
+		writer.writeNamespace("wsse", WSS_URI);
+		writer.writeAttribute("soapenv", SOAP_URI, "mustUnderstand", "1");
+		writer.writeStartElement("wsse", "UsernameToken", WSS_URI);
+		writer.writeStartElement("wsse", "Username", WSS_URI);
+		writer.writeCharacters(this.user);
+		writer.writeEndElement();
+		writer.writeStartElement("wsse", "Password", WSS_URI);
+		writer.writeAttribute("Type", PASSWORD_TEXT);
+		writer.writeCharacters(this.password);
+		writer.writeEndElement();
+		writer.writeEndElement();
+		writer.writeEndElement();
+		writer.writeEndElement();
+
+		// body
+		writer.writeStartElement("soapenv", "Body", SOAP_URI);
+		Marshaller marshaller = getContext().createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+		marshaller.marshal(request, writer);
+		writer.writeEndElement();
+
+		writer.writeEndElement();
+		writer.writeEndDocument();
+		writer.close();
+	}
+
+	private <T> int readResponse(InputStream in, String elementName,
+			Class<T> type, DefectHandler<T> handler) throws XMLStreamException,
+			JAXBException, CovRemoteServiceException_Exception {
+		XMLStreamReader reader = this.inputFactory.createXMLStreamReader(in);
+		try {
+			Unmarshaller unmarshaller = getContext().createUnmarshaller();
+			boolean inBody = false;
+			int count = 0;
+			int total = -1;
+			while (reader.hasNext()) {
+				if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (!inBody) {
+						inBody = "Body".equals(name) && SOAP_URI.equals(reader.getNamespaceURI());
+					} else if ("Fault".equals(name)) {
+						throw readFault(reader);
+					} else if (elementName.equals(name)) {
+						// unmarshal leaves the reader on the event after the element
+						handler.handle(unmarshaller.unmarshal(reader, type).getValue());
+						count++;
+						continue;
+					} else if ("totalNumberOfRecords".equals(name)) {
+						total = Integer.parseInt(reader.getElementText().trim());
+					}
+				}
+				reader.next();
+			}
+
+			return total >= 0 ? total : count;
+		} finally {
+			reader.close();
+		}
+	}
+
+	private CovRemoteServiceException_Exception readFault(XMLStreamReader reader)
+			throws XMLStreamException {
+		String faultString = "SOAP fault";
+		int depth = 1;
+		while (reader.hasNext() && depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if ("faultstring".equals(reader.getLocalName())) {
+					faultString = reader.getElementText();
+				} else {
+					depth++;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+
+		return new CovRemoteServiceException_Exception(faultString, null);
+	}
+
+	/**
+	 * Counts the bytes read from the response
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		private long count = 0;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				this.count++;
+			}
+			return b;
+		}
+
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int n = super.read(buffer, offset, length);
+			if (n > 0) {
+				this.count += n;
+			}
+			return n;
+		}
+
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			this.count += skipped;
+			return skipped;
+		}
+
+		long getCount() {
+			return this.count;
+		}
+	}
+
+	private static synchronized JAXBContext getContext() throws JAXBException {
+		if (context == null) {
+			context = JAXBContext.newInstance(ObjectFactory.class);
+		}
+
+		return context;
+	}
+}
@@ -0,0 +1,173 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.ProjectDataObj;
+import com.coverity.ws.v4.ProjectFilterSpecDataObj;
+import com.coverity.ws.v4.StreamDataObj;
+import com.coverity.ws.v4.StreamFilterSpecDataObj;
+
+/**
+ * All CIM projects and streams, loaded with one call each and indexed by
+ * name and project key, with the project to stream links in both
+ * directions. The catalog is reloaded on first use after the TTL has passed;
+ * callers arriving during a load wait for it. The returned data objects are
+ * shared and must not be modified.
+ */
+public class TopologyCatalog {
+	private final CimProxy cimProxy;
+	private final long ttlMillis;
+	private long loadedAt;
+	private Map<String, ProjectDataObj> projectsByName;
+	private Map<Long, ProjectDataObj> projectsByKey;
+	private Map<String, StreamDataObj> streamsByName;
+	private Map<String, List<StreamDataObj>> streamsByProject;
+	private Map<String, List<ProjectDataObj>> projectsByStream;
+
+	TopologyCatalog(CimProxy cimProxy, long ttlMillis) {
+		this.cimProxy = cimProxy;
+		this.ttlMillis = ttlMillis;
+	}
+
+	/**
+	 * Reloads the projects and streams; both are fetched at the same time
+	 */
+	public synchronized void refresh() throws CovRemoteServiceException_Exception {
+		FutureTask<List<StreamDataObj>> streamTask = new FutureTask<List<StreamDataObj>>(
+				new Callable<List<StreamDataObj>>() {
+					public List<StreamDataObj> call() throws Exception {
+						return cimProxy.fetchStreams(new StreamFilterSpecDataObj());
+					}
+				});
+		Thread streamThread = new Thread(streamTask, "cim-topology");
+		streamThread.setDaemon(true);
+		streamThread.start();
+		List<ProjectDataObj> projects = this.cimProxy
+				.fetchProjects(new ProjectFilterSpecDataObj());
+		List<StreamDataObj> streams = CimProxy.waitFor(streamTask);
+
+		Map<String, StreamDataObj> byStreamName = new LinkedHashMap<String, StreamDataObj>();
+		for (StreamDataObj stream : streams) {
+			byStreamName.put(stream.getId().getName(), stream);
+		}
+
+		Map<String, ProjectDataObj> byProjectName = new LinkedHashMap<String, ProjectDataObj>();
+		Map<Long, ProjectDataObj> byKey = new HashMap<Long, ProjectDataObj>();
+		Map<String, List<StreamDataObj>> byProject = new HashMap<String, List<StreamDataObj>>();
+		Map<String, List<ProjectDataObj>> byStream = new HashMap<String, List<ProjectDataObj>>();
+		for (ProjectDataObj project : projects) {
+			String projectName = project.getId().getName();
+			byProjectName.put(projectName, project);
+			if (project.getProjectKey() != null) {
+				byKey.put(project.getProjectKey(), project);
+			}
+
+			// primary and linked streams, as the catalog's stream objects
+			Map<String, StreamDataObj> projectStreams = new LinkedHashMap<String, StreamDataObj>();
+			List<StreamDataObj> members = new ArrayList<StreamDataObj>(project.getStreams());
+			members.addAll(project.getStreamLinks());
+			for (StreamDataObj member : members) {
+				String streamName = member.getId().getName();
+				StreamDataObj stream = byStreamName.get(streamName);
+				projectStreams.put(streamName, stream != null ? stream : member);
+			}
+			byProject.put(projectName, Collections.unmodifiableList(
+					new ArrayList<StreamDataObj>(projectStreams.values())));
+
+			for (String streamName : projectStreams.keySet()) {
+				List<ProjectDataObj> streamProjects = byStream.get(streamName);
+				if (streamProjects == null) {
+					streamProjects = new ArrayList<ProjectDataObj>();
+					byStream.put(streamName, streamProjects);
+				}
+				streamProjects.add(project);
+			}
+		}
+
+		this.projectsByName = byProjectName;
+		this.projectsByKey = byKey;
+		this.streamsByName = byStreamName;
+		this.streamsByProject = byProject;
+		this.projectsByStream = byStream;
+		this.loadedAt = System.currentTimeMillis();
+	}
+
+	private synchronized void refreshIfStale()
+			throws CovRemoteServiceException_Exception {
+		if (this.projectsByName == null
+				|| System.currentTimeMillis() - this.loadedAt >= this.ttlMillis) {
+			refresh();
+		}
+	}
+
+	public synchronized List<ProjectDataObj> getProjects()
+			throws CovRemoteServiceException_Exception {
+		refreshIfStale();
+		return new ArrayList<ProjectDataObj>(this.projectsByName.values());
+	}
+
+	public synchronized List<StreamDataObj> getStreams()
+			throws CovRemoteServiceException_Exception {
+		refreshIfStale();
+		return new ArrayList<StreamDataObj>(this.streamsByName.values());
+	}
+
+	/**
+	 * Returns the project with the given name or null if there is none
+	 */
+	public synchronized ProjectDataObj getProject(String name)
+			throws CovRemoteServiceException_Exception {
+		refreshIfStale();
+		return this.projectsByName.get(name);
+	}
+
+	/**
+	 * Returns the project with the given key or null if there is none
+	 */
+	public synchronized ProjectDataObj getProjectByKey(long projectKey)
+			throws CovRemoteServiceException_Exception {
+		refreshIfStale();
+		return this.projectsByKey.get(projectKey);
+	}
+
+	/**
+	 * Returns the stream with the given name or null if there is none
+	 */
+	public synchronized StreamDataObj getStream(String name)
+			throws CovRemoteServiceException_Exception {
+		refreshIfStale();
+		return this.streamsByName.get(name);
+	}
+
+	/**
+	 * Returns the primary and linked streams of a project, empty if there is
+	 * no such project
+	 */
+	public synchronized List<StreamDataObj> getStreamsOfProject(String project)
+			throws CovRemoteServiceException_Exception {
+		refreshIfStale();
+		List<StreamDataObj> streams = this.streamsByProject.get(project);
+		return streams != null ? streams : Collections.<StreamDataObj> emptyList();
+	}
+
+	/**
+	 * Returns the projects a stream belongs to or is linked into
+	 */
+	public synchronized List<ProjectDataObj> getProjectsOfStream(String stream)
+			throws CovRemoteServiceException_Exception {
+		refreshIfStale();
+		List<ProjectDataObj> projects = this.projectsByStream.get(stream);
+		return projects != null ? Collections.unmodifiableList(projects)
+				: Collections.<ProjectDataObj> emptyList();
+	}
+}
@@ -0,0 +1,101 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Response sizes of CIM calls per channel: bytes received on the wire and
+ * bytes after decompression. A size that could not be measured for a call
+ * (for example the wire size of a chunked, compressed JAX-WS response) is
+ * left out of its total and counted as unmeasured instead. Instances are
+ * thread safe.
+ */
+public class TransferStats {
+	// indices into the per-channel counters
+	private static final int CALLS = 0;
+	private static final int WIRE_BYTES = 1;
+	private static final int DECODED_BYTES = 2;
+	private static final int UNMEASURED_WIRE = 3;
+	private static final int UNMEASURED_DECODED = 4;
+	private final Map<String, long[]> channels = new LinkedHashMap<String, long[]>();
+
+	/**
+	 * Records one response
+	 *
+	 * @param channel service or client the response was received by
+	 * @param wireBytes bytes on the wire, or -1 if unknown
+	 * @param decodedBytes bytes after decompression, or -1 if unknown
+	 */
+	public synchronized void record(String channel, long wireBytes,
+			long decodedBytes) {
+		long[] counters = this.channels.get(channel);
+		if (counters == null) {
+			counters = new long[5];
+			this.channels.put(channel, counters);
+		}
+
+		counters[CALLS]++;
+		if (wireBytes < 0) {
+			counters[UNMEASURED_WIRE]++;
+		} else {
+			counters[WIRE_BYTES] += wireBytes;
+		}
+		if (decodedBytes < 0) {
+			counters[UNMEASURED_DECODED]++;
+		} else {
+			counters[DECODED_BYTES] += decodedBytes;
+		}
+	}
+
+	public synchronized long getCalls(String channel) {
+		return get(channel, CALLS);
+	}
+
+	public synchronized long getWireBytes(String channel) {
+		return get(channel, WIRE_BYTES);
+	}
+
+	public synchronized long getDecodedBytes(String channel) {
+		return get(channel, DECODED_BYTES);
+	}
+
+	public synchronized long getUnmeasuredWireCalls(String channel) {
+		return get(channel, UNMEASURED_WIRE);
+	}
+
+	public synchronized long getUnmeasuredDecodedCalls(String channel) {
+		return get(channel, UNMEASURED_DECODED);
+	}
+
+	public synchronized String[] getChannels() {
+		return this.channels.keySet().toArray(new String[this.channels.size()]);
+	}
+
+	private long get(String channel, int index) {
+		long[] counters = this.channels.get(channel);
+		return counters != null ? counters[index] : 0;
+	}
+
+	public synchronized String toString() {
+		StringBuilder result = new StringBuilder();
+		for (Map.Entry<String, long[]> channel : this.channels.entrySet()) {
+			long[] counters = channel.getValue();
+			if (result.length() > 0) {
+				result.append("; ");
+			}
+			result.append(channel.getKey()).append(": calls=")
+					.append(counters[CALLS]).append(", wire=")
+					.append(counters[WIRE_BYTES]).append(" bytes, decoded=")
+					.append(counters[DECODED_BYTES]).append(" bytes");
+			if (counters[UNMEASURED_WIRE] > 0) {
+				result.append(", unmeasured wire=").append(counters[UNMEASURED_WIRE]);
+			}
+			if (counters[UNMEASURED_DECODED] > 0) {
+				result.append(", unmeasured decoded=").append(counters[UNMEASURED_DECODED]);
+			}
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,105 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.common;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.coverity.ps.common.config.ConfigurationManager;
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.UserDataObj;
+
+/**
+ * Process-wide cache of the CIM users, indexed by user name and by e-mail
+ * address. The user list is fetched on first use and re-fetched once it is
+ * older than the configured user-cache-ttl (in seconds). A new ttl takes
+ * effect when the configuration is reloaded, without dropping the cache.
+ */
+public class UserDirectory {
+	private static UserDirectory instance;
+	private long ttlMillis;
+	private long loadedAt;
+	private List<UserDataObj> users;
+	private Map<String, UserDataObj> usersByName;
+	private Map<String, UserDataObj> usersByEmail;
+
+	private UserDirectory() {
+		this.ttlMillis = ConfigurationManager.getInstance().getUserCacheTtl() * 1000L;
+		ConfigurationManager.addListener(new ConfigurationManager.Listener() {
+			public void configurationChanged(ConfigurationManager previous,
+					ConfigurationManager current) {
+				setTtlMillis(current.getUserCacheTtl() * 1000L);
+			}
+		});
+	}
+
+	public static synchronized UserDirectory getInstance() {
+		if (instance == null) {
+			instance = new UserDirectory();
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Re-fetches the user list from the CIM
+	 */
+	public synchronized void refresh() throws CovRemoteServiceException_Exception {
+		List<UserDataObj> userList = CimProxy.getInstance().getAllUsers();
+		Map<String, UserDataObj> byName = new HashMap<String, UserDataObj>();
+		Map<String, UserDataObj> byEmail = new HashMap<String, UserDataObj>();
+		for (UserDataObj user : userList) {
+			byName.put(user.getUsername(), user);
+			if (user.getEmail() != null) {
+				byEmail.put(user.getEmail().toLowerCase(), user);
+			}
+		}
+
+		this.users = Collections.unmodifiableList(userList);
+		this.usersByName = byName;
+		this.usersByEmail = byEmail;
+		this.loadedAt = System.currentTimeMillis();
+	}
+
+	public synchronized List<UserDataObj> getAllUsers()
+			throws CovRemoteServiceException_Exception {
+		refreshIfStale();
+		return this.users;
+	}
+
+	/**
+	 * Returns the user with the given user name or null if there is none
+	 */
+	public synchronized UserDataObj getUser(String userName)
+			throws CovRemoteServiceException_Exception {
+		refreshIfStale();
+		return this.usersByName.get(userName);
+	}
+
+	/**
+	 * Returns the user with the given e-mail address (case insensitive) or
+	 * null if there is none
+	 */
+	public synchronized UserDataObj getUserByEmail(String email)
+			throws CovRemoteServiceException_Exception {
+		if (email == null) {
+			return null;
+		}
+
+		refreshIfStale();
+		return this.usersByEmail.get(email.toLowerCase());
+	}
+
+	private synchronized void setTtlMillis(long ttlMillis) {
+		this.ttlMillis = ttlMillis;
+	}
+
+	private void refreshIfStale() throws CovRemoteServiceException_Exception {
+		if (this.users == null
+				|| System.currentTimeMillis() - this.loadedAt > this.ttlMillis) {
+			refresh();
+		}
+	}
+}
@@ -1,239 +1,545 @@
-package com.coverity.ps.common.config;
-
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-/*
- * Manages XML configuration data 
- */
-public class ConfigurationManager {
-	private static ConfigurationManager instance;
-	private static final String CONFIGURATION_FILE = "config/coverity-bn-config.xml";
-	private String address;
-	private int port;
-	private String user;
-	private String password;
-	private List<ScmConfigData> scmStreamData = new ArrayList<ScmConfigData>();
-	private List<ScmConfigData> scmProjectData = new ArrayList<ScmConfigData>();
-	private String scmClass;
-	private String bugTrackingClass;
-	private String bugTrackingAddress;
-	private String bugTrackingUser;
-	private String bugTrackingPassword;
-	private Map<String, String> bugProperties;
-	
-	private ConfigurationManager() {
-		try {
-			loadConfigurationFile();
-		} catch (SAXException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} catch (ParserConfigurationException e) {
-			e.printStackTrace();
-		}
-	}
-	
-	public static ConfigurationManager getInstance() {
-		if (instance == null) {
-			instance = new ConfigurationManager();
-		}
-
-		return instance;
-	}
-	
-	private void loadConfigurationFile() throws SAXException, IOException,
-			ParserConfigurationException {
-		DocumentBuilderFactory documentFactory = DocumentBuilderFactory
-				.newInstance();
-		DocumentBuilder documentBuilder = documentFactory.newDocumentBuilder();
-		Document document = documentBuilder.parse(CONFIGURATION_FILE);
-		
-		// get cim tag
-		NodeList cimNode = document.getDocumentElement().getElementsByTagName("cim");
-		if (cimNode.getLength() != 1) {
-			System.err.println("Invalid or missing cim configuration tag!");
-		}
-		Element cimElem = (Element) cimNode.item(0);
-		
-		NodeList addressNode = cimElem.getElementsByTagName("address");
-		if (addressNode.getLength() != 1) {
-			System.err.println("Invalid or missing address configuration tag!");
-		}
-		Element addressElem = (Element) addressNode.item(0);
-		this.address = addressElem.getTextContent();
-		
-		NodeList portNode = cimElem.getElementsByTagName("port");
-		if (portNode.getLength() != 1) {
-			System.err.println("Invalid or missing port configuration tag!");
-		}
-		Element portElem = (Element) portNode.item(0);
-		this.port = Integer.parseInt(portElem.getTextContent());
-		
-		NodeList userNode = cimElem.getElementsByTagName("user");
-		if (userNode.getLength() != 1) {
-			System.err.println("Invalid or missing user configuration tag!");
-		}
-		Element userElem = (Element) userNode.item(0);
-		this.user = userElem.getTextContent();
-		
-		NodeList passwordNode = cimElem.getElementsByTagName("password");
-		if (passwordNode.getLength() != 1) {
-			System.err.println("Invalid or missing password configuration tag!");
-		}
-		Element passwordElem = (Element) passwordNode.item(0);
-		this.password = passwordElem.getTextContent();
-		
-		// get scm tag
-		NodeList scmNode = document.getDocumentElement().getElementsByTagName("scm");
-		if (scmNode.getLength() == 1) {
-			Element scmElem = (Element) scmNode.item(0);
-			
-			NodeList systemNode = scmElem.getElementsByTagName("system");
-			if (systemNode.getLength() != 1) {
-				System.err.println("Invalid or missing system configuration tag!");
-			}
-			Element systemElem = (Element) systemNode.item(0);
-			this.scmClass = systemElem.getAttribute("class");
-			Map<String, String> data = new HashMap<String, String>();
-			
-			// stream data
-			NodeList streamNodes = systemElem.getElementsByTagName("stream");
-			for(int i = 0; i < streamNodes.getLength(); i++) {
-				Element streamElem = (Element) streamNodes.item(i);
-				String name = streamElem.getAttribute("name");
-				data.put("name", name);				
-				String cimStripPath = getElement(streamElem, "cim-strip-path", 1);
-				
-				if (cimStripPath != null)
-				   data.put("cimStripPath", cimStripPath);
-
-				String localPrependPath = getElement(streamElem, "local-prepend-path", 1);
-				
-				if (localPrependPath != null)
-				   data.put("localPrependPath", localPrependPath);
-				   
-				String repository = getElement(streamElem, "repository", 1);
-
-				if (repository != null)
-  				   data.put("repository", repository);
-				
-				scmStreamData.add(new ScmConfigData(data));
-			}			
-		}
-					
-		// get bug tracking tag
-		NodeList bugTrackingNode = document.getDocumentElement().getElementsByTagName("bug-tracking");
-		if (bugTrackingNode.getLength() == 1) {
-			Element bugTrackingElem = (Element) bugTrackingNode.item(0);
-			
-			NodeList systemNode = bugTrackingElem.getElementsByTagName("system");
-			if (systemNode.getLength() != 1) {
-				System.err.println("Invalid or missing system configuration tag!");
-			}
-			Element systemElem = (Element) systemNode.item(0);
-			this.bugTrackingClass = systemElem.getAttribute("class");
-			
-			NodeList bugTrackingAddressNode = systemElem.getElementsByTagName("address");
-			if (bugTrackingAddressNode.getLength() != 1) {
-				System.err.println("Invalid or missing Address configuration tag!");
-			}
-			Element bugTrackingAddressElem = (Element) bugTrackingAddressNode.item(0);
-			this.bugTrackingAddress = bugTrackingAddressElem.getTextContent();
-			
-			NodeList bugTrackingUserNode = systemElem.getElementsByTagName("user");
-			if (bugTrackingUserNode.getLength() != 1) {
-				System.err.println("Invalid or missing user configuration tag!");
-			}
-			Element bugTrackingUserElem = (Element) bugTrackingUserNode.item(0);
-			this.bugTrackingUser = bugTrackingUserElem.getTextContent();
-			
-			NodeList bugTrackingPasswordNode = systemElem.getElementsByTagName("password");
-			if (bugTrackingPasswordNode.getLength() != 1) {
-				System.err.println("Invalid or missing password configuration tag!");
-			}
-			Element bugTrackingPasswordElem = (Element) bugTrackingPasswordNode.item(0);
-			this.bugTrackingPassword = bugTrackingPasswordElem.getTextContent();
-			
-			// get properties
-			this.bugProperties = new HashMap<String, String>();
-			NodeList bugPropertiesNode = systemElem.getElementsByTagName("property");
-			for (int i = 0; i < bugPropertiesNode.getLength(); i++) {
-				Element bugPropertyNode  = (Element) bugPropertiesNode.item(i);
-				bugProperties.put(bugPropertyNode.getAttribute("name"), 
-						bugPropertyNode.getTextContent());
-			}
-		}
-	}
-
-	
-	private String getElement(Element systemElem, String name, int nbElements) {
-		NodeList nl = systemElem.getElementsByTagName(name);
-		if (nl.getLength() != nbElements) {
-			System.err.println("Invalid or missing " + name + " configuration tag!");
-			return null;
-		}
-		Element elem = (Element) nl.item(0);
-		return elem.getTextContent();
-	}
-			
-	public String getBugTrackingClass() {
-		return bugTrackingClass;
-	}
-
-	public String getBugTrackingAddress() {
-		return bugTrackingAddress;
-	}
-
-	public String getBugTrackingUser() {
-		return bugTrackingUser;
-	}
-
-	public String getBugTrackingPassword() {
-		return bugTrackingPassword;
-	}
-
-	public String getScmClass() {
-		return scmClass;
-	}
-
-	public List<ScmConfigData> getScmStreamData() {
-		return scmStreamData;
-	}
-	
-	public List<ScmConfigData> getScmProjectData() {
-		return scmProjectData;
-	}
-
-	public String getAddress() {
-		return address;
-	}
-
-	public int getPort() {
-		return port;
-	}
-
-	public String getUser() {
-		return user;
-	}
-
-	public String getPassword() {
-		return password;
-	}
-	
-	public Map<String, String> getBugProperties() {
-		return bugProperties;
-	}
-}
+package com.coverity.ps.common.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import com.coverity.ps.common.FlightEvents;
+
+/*
+ * Manages XML configuration data. An instance is an immutable snapshot of
+ * the configuration file; getInstance() returns the current one. When
+ * config-reload-interval is set, the file is checked for changes at that
+ * interval and a new snapshot replaces the current one once it parses, after
+ * which the registered listeners are told about the change.
+ */
+public class ConfigurationManager {
+	private static volatile ConfigurationManager instance;
+	private static final String CONFIGURATION_FILE = "config/coverity-bn-config.xml";
+	private static final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private static Thread watcher;
+	private boolean loaded;
+	private String address;
+	private int port;
+	private String user;
+	private String password;
+	private int fetchThreads;
+	private int portPoolSize;
+	private int asyncThreads;
+	private String wsdlDir;
+	private String warmUp;
+	private int topologyCacheTtl;
+	private String httpCompression;
+	private int httpMaxConnections;
+	private int updateBatchSize;
+	private int userCacheTtl;
+	private String pagingMode;
+	private String snapshotStateFile;
+	private String defectCacheDir;
+	private int defectCacheMaxAge;
+	private String defectSyncDir;
+	private String streamingReads;
+	private int pageSizeMin;
+	private int pageSizeMax;
+	private int pageTargetTime;
+	private int pageMaxKb;
+	private int concurrencyLimitMax;
+	private int concurrencyLatencyTolerance;
+	private String metricsDir;
+	private String wssHandler;
+	private int configReloadInterval;
+	private List<ScmConfigData> scmStreamData = new ArrayList<ScmConfigData>();
+	private List<ScmConfigData> scmProjectData = new ArrayList<ScmConfigData>();
+	private String scmClass;
+	private String bugTrackingClass;
+	private String bugTrackingAddress;
+	private String bugTrackingUser;
+	private String bugTrackingPassword;
+	private Map<String, String> bugProperties;
+	
+	private ConfigurationManager() {
+		Object event = FlightEvents.begin(FlightEvents.CONFIGURATION_PARSE);
+		boolean failed = true;
+		try {
+			loadConfigurationFile();
+			failed = false;
+			this.loaded = true;
+		} catch (SAXException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (ParserConfigurationException e) {
+			e.printStackTrace();
+		} catch (RuntimeException e) {
+			// valid XML with a missing tag or a malformed number
+			e.printStackTrace();
+		} finally {
+			FlightEvents.commit(event, CONFIGURATION_FILE, failed);
+		}
+	}
+	
+	/**
+	 * Receives the configuration snapshots that replace the current one
+	 */
+	public interface Listener {
+		public void configurationChanged(ConfigurationManager previous,
+				ConfigurationManager current);
+	}
+	
+	public static ConfigurationManager getInstance() {
+		ConfigurationManager current = instance;
+		if (current == null) {
+			synchronized (ConfigurationManager.class) {
+				if (instance == null) {
+					instance = new ConfigurationManager();
+					startWatcher();
+				}
+				current = instance;
+			}
+		}
+
+		return current;
+	}
+	
+	public static void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+	
+	public static void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Parses the configuration file again and, if it is valid, makes it the
+	 * current snapshot and notifies the listeners
+	 * 
+	 * @return false if the file could not be parsed; the current snapshot is
+	 *         kept
+	 */
+	public static boolean reload() {
+		ConfigurationManager current = new ConfigurationManager();
+		if (!current.loaded) {
+			System.err.println("Invalid configuration file, keeping the current configuration!");
+			return false;
+		}
+		
+		ConfigurationManager previous;
+		synchronized (ConfigurationManager.class) {
+			previous = instance;
+			instance = current;
+			startWatcher();
+		}
+		for (Listener listener : listeners) {
+			try {
+				listener.configurationChanged(previous, current);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Starts polling the configuration file if the current snapshot has a
+	 * reload interval and no watcher runs yet. The watcher stops once the
+	 * interval is removed from the file.
+	 */
+	private static synchronized void startWatcher() {
+		if (watcher != null || instance.configReloadInterval <= 0) {
+			return;
+		}
+		
+		watcher = new Thread("configuration-watcher") {
+			public void run() {
+				File file = new File(CONFIGURATION_FILE);
+				long lastModified = file.lastModified();
+				long length = file.length();
+				while (true) {
+					int interval;
+					synchronized (ConfigurationManager.class) {
+						interval = instance.configReloadInterval;
+						if (interval <= 0) {
+							watcher = null;
+							return;
+						}
+					}
+					try {
+						Thread.sleep(interval * 1000L);
+					} catch (InterruptedException e) {
+						synchronized (ConfigurationManager.class) {
+							watcher = null;
+						}
+						return;
+					}
+					
+					// a file being written is picked up on the next check
+					if (file.lastModified() != lastModified || file.length() != length) {
+						lastModified = file.lastModified();
+						length = file.length();
+						System.out.println("configuration file changed, reloading " + CONFIGURATION_FILE);
+						// a failed reload must not stop the watcher
+						try {
+							reload();
+						} catch (RuntimeException e) {
+							System.err.println("Unable to reload " + CONFIGURATION_FILE + ": " + e);
+						}
+					}
+				}
+			}
+		};
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+	
+	private void loadConfigurationFile() throws SAXException, IOException,
+			ParserConfigurationException {
+		DocumentBuilderFactory documentFactory = DocumentBuilderFactory
+				.newInstance();
+		DocumentBuilder documentBuilder = documentFactory.newDocumentBuilder();
+		Document document = documentBuilder.parse(CONFIGURATION_FILE);
+		
+		// get cim tag
+		NodeList cimNode = document.getDocumentElement().getElementsByTagName("cim");
+		if (cimNode.getLength() != 1) {
+			System.err.println("Invalid or missing cim configuration tag!");
+		}
+		Element cimElem = (Element) cimNode.item(0);
+		
+		NodeList addressNode = cimElem.getElementsByTagName("address");
+		if (addressNode.getLength() != 1) {
+			System.err.println("Invalid or missing address configuration tag!");
+		}
+		Element addressElem = (Element) addressNode.item(0);
+		this.address = addressElem.getTextContent();
+		
+		NodeList portNode = cimElem.getElementsByTagName("port");
+		if (portNode.getLength() != 1) {
+			System.err.println("Invalid or missing port configuration tag!");
+		}
+		Element portElem = (Element) portNode.item(0);
+		this.port = Integer.parseInt(portElem.getTextContent());
+		
+		NodeList userNode = cimElem.getElementsByTagName("user");
+		if (userNode.getLength() != 1) {
+			System.err.println("Invalid or missing user configuration tag!");
+		}
+		Element userElem = (Element) userNode.item(0);
+		this.user = userElem.getTextContent();
+		
+		NodeList passwordNode = cimElem.getElementsByTagName("password");
+		if (passwordNode.getLength() != 1) {
+			System.err.println("Invalid or missing password configuration tag!");
+		}
+		Element passwordElem = (Element) passwordNode.item(0);
+		this.password = passwordElem.getTextContent();
+		
+		// optional tuning
+		this.fetchThreads = getOptionalInt(cimElem, "fetch-threads", 4);
+		this.portPoolSize = getOptionalInt(cimElem, "port-pool-size", this.fetchThreads);
+		this.asyncThreads = getOptionalInt(cimElem, "async-threads", this.fetchThreads);
+		this.wsdlDir = getOptionalString(cimElem, "wsdl-dir", null);
+		this.warmUp = getOptionalString(cimElem, "warm-up", "false");
+		this.topologyCacheTtl = getOptionalInt(cimElem, "topology-cache-ttl", 600);
+		this.httpCompression = getOptionalString(cimElem, "http-compression", "response");
+		this.httpMaxConnections = getOptionalInt(cimElem, "http-max-connections", Math.max(5, 2 * this.portPoolSize));
+		this.updateBatchSize = getOptionalInt(cimElem, "update-batch-size", 500);
+		this.userCacheTtl = getOptionalInt(cimElem, "user-cache-ttl", 600);
+		this.pagingMode = getOptionalString(cimElem, "paging-mode", "offset");
+		this.snapshotStateFile = getOptionalString(cimElem, "snapshot-state-file", null);
+		this.defectCacheDir = getOptionalString(cimElem, "defect-cache-dir", null);
+		this.defectCacheMaxAge = getOptionalInt(cimElem, "defect-cache-max-age", 3600);
+		this.defectSyncDir = getOptionalString(cimElem, "defect-sync-dir", null);
+		this.streamingReads = getOptionalString(cimElem, "streaming-reads", "false");
+		this.pageSizeMin = getOptionalInt(cimElem, "page-size-min", 100);
+		this.pageSizeMax = getOptionalInt(cimElem, "page-size-max", 2500);
+		this.pageTargetTime = getOptionalInt(cimElem, "page-target-time", 5000);
+		this.pageMaxKb = getOptionalInt(cimElem, "page-max-kb", 16384);
+		this.concurrencyLimitMax = getOptionalInt(cimElem, "concurrency-limit-max", this.portPoolSize);
+		this.concurrencyLatencyTolerance = getOptionalInt(cimElem, "concurrency-latency-tolerance", 200);
+		this.metricsDir = getOptionalString(cimElem, "metrics-dir", null);
+		this.wssHandler = getOptionalString(cimElem, "wss-handler", "precomputed");
+		this.configReloadInterval = getOptionalInt(cimElem, "config-reload-interval", 0);
+		
+		// get scm tag
+		NodeList scmNode = document.getDocumentElement().getElementsByTagName("scm");
+		if (scmNode.getLength() == 1) {
+			Element scmElem = (Element) scmNode.item(0);
+			
+			NodeList systemNode = scmElem.getElementsByTagName("system");
+			if (systemNode.getLength() != 1) {
+				System.err.println("Invalid or missing system configuration tag!");
+			}
+			Element systemElem = (Element) systemNode.item(0);
+			this.scmClass = systemElem.getAttribute("class");
+			Map<String, String> data = new HashMap<String, String>();
+			
+			// stream data
+			NodeList streamNodes = systemElem.getElementsByTagName("stream");
+			for(int i = 0; i < streamNodes.getLength(); i++) {
+				Element streamElem = (Element) streamNodes.item(i);
+				String name = streamElem.getAttribute("name");
+				data.put("name", name);				
+				String cimStripPath = getElement(streamElem, "cim-strip-path", 1);
+				
+				if (cimStripPath != null)
+				   data.put("cimStripPath", cimStripPath);
+
+				String localPrependPath = getElement(streamElem, "local-prepend-path", 1);
+				
+				if (localPrependPath != null)
+				   data.put("localPrependPath", localPrependPath);
+				   
+				String repository = getElement(streamElem, "repository", 1);
+
+				if (repository != null)
+  				   data.put("repository", repository);
+				
+				scmStreamData.add(new ScmConfigData(data));
+			}			
+		}
+					
+		// get bug tracking tag
+		NodeList bugTrackingNode = document.getDocumentElement().getElementsByTagName("bug-tracking");
+		if (bugTrackingNode.getLength() == 1) {
+			Element bugTrackingElem = (Element) bugTrackingNode.item(0);
+			
+			NodeList systemNode = bugTrackingElem.getElementsByTagName("system");
+			if (systemNode.getLength() != 1) {
+				System.err.println("Invalid or missing system configuration tag!");
+			}
+			Element systemElem = (Element) systemNode.item(0);
+			this.bugTrackingClass = systemElem.getAttribute("class");
+			
+			NodeList bugTrackingAddressNode = systemElem.getElementsByTagName("address");
+			if (bugTrackingAddressNode.getLength() != 1) {
+				System.err.println("Invalid or missing Address configuration tag!");
+			}
+			Element bugTrackingAddressElem = (Element) bugTrackingAddressNode.item(0);
+			this.bugTrackingAddress = bugTrackingAddressElem.getTextContent();
+			
+			NodeList bugTrackingUserNode = systemElem.getElementsByTagName("user");
+			if (bugTrackingUserNode.getLength() != 1) {
+				System.err.println("Invalid or missing user configuration tag!");
+			}
+			Element bugTrackingUserElem = (Element) bugTrackingUserNode.item(0);
+			this.bugTrackingUser = bugTrackingUserElem.getTextContent();
+			
+			NodeList bugTrackingPasswordNode = systemElem.getElementsByTagName("password");
+			if (bugTrackingPasswordNode.getLength() != 1) {
+				System.err.println("Invalid or missing password configuration tag!");
+			}
+			Element bugTrackingPasswordElem = (Element) bugTrackingPasswordNode.item(0);
+			this.bugTrackingPassword = bugTrackingPasswordElem.getTextContent();
+			
+			// get properties
+			this.bugProperties = new HashMap<String, String>();
+			NodeList bugPropertiesNode = systemElem.getElementsByTagName("property");
+			for (int i = 0; i < bugPropertiesNode.getLength(); i++) {
+				Element bugPropertyNode  = (Element) bugPropertiesNode.item(i);
+				bugProperties.put(bugPropertyNode.getAttribute("name"), 
+						bugPropertyNode.getTextContent());
+			}
+			this.bugProperties = Collections.unmodifiableMap(this.bugProperties);
+		}
+		
+		// snapshots are shared between threads and never change
+		this.scmStreamData = Collections.unmodifiableList(this.scmStreamData);
+		this.scmProjectData = Collections.unmodifiableList(this.scmProjectData);
+	}
+
+	
+	private String getElement(Element systemElem, String name, int nbElements) {
+		NodeList nl = systemElem.getElementsByTagName(name);
+		if (nl.getLength() != nbElements) {
+			System.err.println("Invalid or missing " + name + " configuration tag!");
+			return null;
+		}
+		Element elem = (Element) nl.item(0);
+		return elem.getTextContent();
+	}
+	
+	private int getOptionalInt(Element parentElem, String name, int defaultValue) {
+		NodeList nl = parentElem.getElementsByTagName(name);
+		if (nl.getLength() != 1) {
+			return defaultValue;
+		}
+		
+		try {
+			return Integer.parseInt(nl.item(0).getTextContent().trim());
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid " + name + " configuration tag!");
+			return defaultValue;
+		}
+	}
+	
+	private String getOptionalString(Element parentElem, String name, String defaultValue) {
+		NodeList nl = parentElem.getElementsByTagName(name);
+		if (nl.getLength() != 1) {
+			return defaultValue;
+		}
+		
+		return nl.item(0).getTextContent().trim();
+	}
+			
+	public String getBugTrackingClass() {
+		return bugTrackingClass;
+	}
+
+	public String getBugTrackingAddress() {
+		return bugTrackingAddress;
+	}
+
+	public String getBugTrackingUser() {
+		return bugTrackingUser;
+	}
+
+	public String getBugTrackingPassword() {
+		return bugTrackingPassword;
+	}
+
+	public String getScmClass() {
+		return scmClass;
+	}
+
+	public List<ScmConfigData> getScmStreamData() {
+		return scmStreamData;
+	}
+	
+	public List<ScmConfigData> getScmProjectData() {
+		return scmProjectData;
+	}
+
+	public String getAddress() {
+		return address;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+	
+	public int getFetchThreads() {
+		return fetchThreads;
+	}
+	
+	public int getPortPoolSize() {
+		return portPoolSize;
+	}
+	
+	public int getAsyncThreads() {
+		return asyncThreads;
+	}
+	
+	public String getWsdlDir() {
+		return wsdlDir;
+	}
+	
+	public String getWarmUp() {
+		return warmUp;
+	}
+	
+	public int getTopologyCacheTtl() {
+		return topologyCacheTtl;
+	}
+	
+	public String getHttpCompression() {
+		return httpCompression;
+	}
+	
+	public int getHttpMaxConnections() {
+		return httpMaxConnections;
+	}
+	
+	public int getUpdateBatchSize() {
+		return updateBatchSize;
+	}
+	
+	public int getUserCacheTtl() {
+		return userCacheTtl;
+	}
+	
+	public String getPagingMode() {
+		return pagingMode;
+	}
+	
+	public String getSnapshotStateFile() {
+		return snapshotStateFile;
+	}
+	
+	public String getDefectCacheDir() {
+		return defectCacheDir;
+	}
+	
+	public int getDefectCacheMaxAge() {
+		return defectCacheMaxAge;
+	}
+	
+	public String getDefectSyncDir() {
+		return defectSyncDir;
+	}
+	
+	public String getStreamingReads() {
+		return streamingReads;
+	}
+	
+	public int getPageSizeMin() {
+		return pageSizeMin;
+	}
+	
+	public int getPageSizeMax() {
+		return pageSizeMax;
+	}
+	
+	public int getPageTargetTime() {
+		return pageTargetTime;
+	}
+	
+	public int getPageMaxKb() {
+		return pageMaxKb;
+	}
+	
+	public int getConcurrencyLimitMax() {
+		return concurrencyLimitMax;
+	}
+	
+	public int getConcurrencyLatencyTolerance() {
+		return concurrencyLatencyTolerance;
+	}
+	
+	public String getMetricsDir() {
+		return metricsDir;
+	}
+	
+	public String getWssHandler() {
+		return wssHandler;
+	}
+	
+	public int getConfigReloadInterval() {
+		return configReloadInterval;
+	}
+	
+	public Map<String, String> getBugProperties() {
+		return bugProperties;
+	}
+}
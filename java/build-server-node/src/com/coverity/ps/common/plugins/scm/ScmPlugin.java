@@ -1,5 +1,5 @@
-package com.coverity.ps.common.plugins.scm;
-
-public interface ScmPlugin {
-	public String getFileOwner(String file) throws Exception;
-}
+package com.coverity.ps.common.plugins.scm;
+
+public interface ScmPlugin {
+	public String getFileOwner(String file) throws Exception;
+}
@@ -1,5 +1,5 @@
-package com.coverity.ps.integrations;
-
-public interface Integration {
-	public boolean execute() throws Exception;
-}
+package com.coverity.ps.integrations;
+
+public interface Integration {
+	public boolean execute() throws Exception;
+}
@@ -1,115 +1,143 @@
-package com.coverity.ps.integrations.reporting;
-
-import java.util.List;
-import java.util.Map;
-
-import com.coverity.ps.common.CimProxy;
-import com.coverity.ps.common.config.ConfigurationManager;
-import com.coverity.ps.integrations.Integration;
-import com.coverity.ws.v4.MergedDefectDataObj;
-
-/**
- * Creates an e-mail report of defects that have been detected in the 
- * last N number of days. Sends an unique e-mail to each defect owner.
- */
-public class NotifyDefectOwners extends UserDefectReport implements Integration {
-	/**
-	 * Constructor
-	 * 
-	 * @param project project name
-	 * @param days defects detected in the past N number of days
-	 * @param isDryRun
-	 */
-	public NotifyDefectOwners(String project, int days, boolean isDryRun) {
-		super(project, days, isDryRun);
-	}
-
-	public boolean execute() throws Exception {
-		ConfigurationManager configurationManager = ConfigurationManager
-				.getInstance();
-		Map<String, List<MergedDefectDataObj>> defectsByUser = getProjectDefectsByOwner();
-		System.out.println(defectsByUser.size() + " user(s) with new defects");
-		for (Map.Entry<String, List<MergedDefectDataObj>> userDefectValues : defectsByUser.entrySet()) {
-			List<MergedDefectDataObj> userDefects = userDefectValues.getValue();
-			if (userDefects.size() > 0 && userDefectValues.getKey() != UNASSIGNED_OWNER_NAME) {
-				StringBuilder html = new StringBuilder();
-				html.append("<html><body><p>The following ");
-				if (userDefects.size() == 1) {
-					html.append("defect was");
-				} else {
-					html.append(userDefects.size() + " defects were");
-				}
-				html.append(" assigned to you in project ");
-				html.append(this.projectName);
-				html.append(" within the past ");
-				if (days == 1) {
-					html.append("24 hours.</p>");
-				} else {
-					html.append(days + " days.</p>");
-				}
-
-				html.append("<br/><table border=\"1\"><tr><th>CID</th><th>Checker</th><th>File</th></tr>");
-				for (MergedDefectDataObj defect : userDefects) {
-					StringBuilder defectUrl = new StringBuilder("http://");
-					defectUrl.append(configurationManager.getAddress());
-					defectUrl.append(':');
-					defectUrl.append(configurationManager.getPort());
-					defectUrl.append("/sourcebrowser.htm?projectId=");
-					defectUrl.append(this.projectId);
-					defectUrl.append("#mergedDefectId=");
-					defectUrl.append(defect.getCid());
-					html.append("<tr><td><a href=\"");
-					html.append(defectUrl);
-					html.append("\"/a>");
-					html.append(defect.getCid());
-					html.append("</td><td>");
-					html.append(defect.getCheckerName());
-					html.append("</td><td>");
-					html.append(defect.getFilePathname());
-					html.append("</td></tr>");
-					// System.out.println("user=" + userDefectValues.getKey() + ", defect=" + defect.getCid());
-				}
-				html.append("</table></body></html>");
-				
-				if(this.isDryRun) {
-					System.out.println(html);
-				}
-				else {
-					final String subject = "New defects assigned to you in Coverity";
-					String recipient = CimProxy.getInstance().notify(userDefectValues.getKey(), subject, html.toString());
-					if(recipient.length() > 0) {
-						System.out.println("e-mail sucessfully sent to " + recipient);
-					}
-					else {
-						System.out.println("*** Unable to e-mail " + recipient + " ***");
-					}
-				}
-			}
-		}
-		
-		return true;
-	}
-
-	/*
-	 * Main command line driver. Please see class constructor for required arguments.
-	 */
-	public static void main(String[] args) {
-		try {
-			if (args.length == 3) {
-				NotifyDefectOwners notifyOwners = new NotifyDefectOwners(
-						args[0], Integer.parseInt(args[1]),
-						args[2].equalsIgnoreCase("true"));
-				if (notifyOwners.execute()) {
-					System.out.println("\nSuccessful!");
-				} else {
-					System.out.println("\n*** Unsuccessful ***");
-				}
-			} else {
-				System.err.println("This program notifies defect owners of new defects that have been detected in the last N number of days.");
-				System.err.println("usage: java " + UserDefectReport.class.getName() + " <project-name> <num-days> <is-dry-run>");
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-	}
-}
+package com.coverity.ps.integrations.reporting;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import com.coverity.ps.common.CimProxy;
+import com.coverity.ps.common.DefectTable;
+import com.coverity.ps.common.FlightEvents;
+import com.coverity.ps.common.MetricsRegistry;
+import com.coverity.ps.common.config.ConfigurationManager;
+import com.coverity.ps.integrations.Integration;
+
+/**
+ * Creates an e-mail report of defects that have been detected in the 
+ * last N number of days. Sends an unique e-mail to each defect owner.
+ */
+public class NotifyDefectOwners extends UserDefectReport implements Integration {
+	/**
+	 * Constructor
+	 * 
+	 * @param project project name
+	 * @param days defects detected in the past N number of days
+	 * @param isDryRun
+	 */
+	public NotifyDefectOwners(String project, int days, boolean isDryRun) {
+		super(project, days, isDryRun);
+	}
+
+	public boolean execute() throws Exception {
+		ConfigurationManager configurationManager = ConfigurationManager
+				.getInstance();
+		Map<String, int[]> defectsByUser = getProjectDefectsByOwner();
+		System.out.println(defectsByUser.size() + " user(s) with new defects");
+		Map<String, Future<String>> notifications = new LinkedHashMap<String, Future<String>>();
+		for (Map.Entry<String, int[]> userDefectValues : defectsByUser.entrySet()) {
+			int[] userDefects = userDefectValues.getValue();
+			if (userDefects.length > 0 && userDefectValues.getKey() != UNASSIGNED_OWNER_NAME) {
+				Object event = FlightEvents.begin(FlightEvents.REPORT_RENDER);
+				String html = buildHtml(this.defects, userDefects, this.projectName,
+						this.projectId, this.days, configurationManager.getAddress(),
+						configurationManager.getPort());
+				FlightEvents.commit(event, getClass().getSimpleName(),
+						userDefects.length, html.length());
+				
+				if(this.isDryRun) {
+					System.out.println(html);
+				}
+				else {
+					final String subject = "New defects assigned to you in Coverity";
+					notifications.put(userDefectValues.getKey(), CimProxy.getInstance().notifyAsync(userDefectValues.getKey(), subject, html));
+				}
+			}
+		}
+		
+		// e-mails are sent concurrently
+		for (Map.Entry<String, Future<String>> notification : notifications.entrySet()) {
+			String recipient = CimProxy.waitFor(notification.getValue());
+			if(recipient.length() > 0) {
+				System.out.println("e-mail sucessfully sent to " + recipient);
+			}
+			else {
+				System.out.println("*** Unable to e-mail " + notification.getKey() + " ***");
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Renders the report of the defects assigned to one user, with links to
+	 * the defects on the CIM at the given address and port
+	 */
+	static String buildHtml(DefectTable defects, int[] userDefects,
+			String projectName, long projectId, int days, String address,
+			int port) {
+		StringBuilder html = new StringBuilder();
+		html.append("<html><body><p>The following ");
+		if (userDefects.length == 1) {
+			html.append("defect was");
+		} else {
+			html.append(userDefects.length + " defects were");
+		}
+		html.append(" assigned to you in project ");
+		html.append(projectName);
+		html.append(" within the past ");
+		if (days == 1) {
+			html.append("24 hours.</p>");
+		} else {
+			html.append(days + " days.</p>");
+		}
+
+		html.append("<br/><table border=\"1\"><tr><th>CID</th><th>Checker</th><th>File</th></tr>");
+		for (int defect : userDefects) {
+			StringBuilder defectUrl = new StringBuilder("http://");
+			defectUrl.append(address);
+			defectUrl.append(':');
+			defectUrl.append(port);
+			defectUrl.append("/sourcebrowser.htm?projectId=");
+			defectUrl.append(projectId);
+			defectUrl.append("#mergedDefectId=");
+			defectUrl.append(defects.getCid(defect));
+			html.append("<tr><td><a href=\"");
+			html.append(defectUrl);
+			html.append("\"/a>");
+			html.append(defects.getCid(defect));
+			html.append("</td><td>");
+			html.append(defects.getCheckerName(defect));
+			html.append("</td><td>");
+			html.append(defects.getFilePathname(defect));
+			html.append("</td></tr>");
+			// System.out.println("user=" + userDefectValues.getKey() + ", defect=" + defect.getCid());
+		}
+		html.append("</table></body></html>");
+		return html.toString();
+	}
+
+	/*
+	 * Main command line driver. Please see class constructor for required arguments.
+	 */
+	public static void main(String[] args) {
+		try {
+			FlightEvents.startRecording(NotifyDefectOwners.class.getSimpleName());
+			if (args.length == 3) {
+				NotifyDefectOwners notifyOwners = new NotifyDefectOwners(
+						args[0], Integer.parseInt(args[1]),
+						args[2].equalsIgnoreCase("true"));
+				if (notifyOwners.execute()) {
+					System.out.println("\nSuccessful!");
+				} else {
+					System.out.println("\n*** Unsuccessful ***");
+				}
+			} else {
+				System.err.println("This program notifies defect owners of new defects that have been detected in the last N number of days.");
+				System.err.println("usage: java " + UserDefectReport.class.getName() + " <project-name> <num-days> <is-dry-run>");
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			MetricsRegistry.getInstance().dump(NotifyDefectOwners.class.getSimpleName());
+		}
+	}
+}
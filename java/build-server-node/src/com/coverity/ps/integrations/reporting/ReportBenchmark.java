@@ -0,0 +1,211 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.integrations.reporting;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import com.coverity.ps.common.DefectTable;
+import com.coverity.ws.v4.MergedDefectDataObj;
+
+/**
+ * Measures the report hot paths on synthetic merged defects: loading the
+ * defect table, grouping by component and owner, and rendering the HTML of
+ * NotifyComponentOwners, NotifyDefectOwners and NotifyComponentManagers. For
+ * each data set size every benchmark is warmed up and then timed; the time
+ * and, where the JVM can measure it, the bytes allocated per operation are
+ * printed. No CIM is needed.
+ */
+public class ReportBenchmark {
+	private static final int PROJECT_ID = 10001;
+	private static final String[] STATUSES = { "New", "New", "Triaged",
+			"Dismissed", "Fixed" };
+	private static final String[] SEVERITIES = { "Unspecified", "Major",
+			"Moderate", "Minor" };
+	// results are folded in here so the JIT cannot drop the work
+	private static volatile long sink;
+	private final Method allocatedBytes;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private final int warmUpIterations;
+	private final int iterations;
+
+	/**
+	 * A unit of work, run once per iteration
+	 */
+	private interface Benchmark {
+		public long run();
+	}
+
+	ReportBenchmark(int warmUpIterations, int iterations) {
+		this.warmUpIterations = warmUpIterations;
+		this.iterations = iterations;
+
+		// per-thread allocation counters are a HotSpot extension
+		Method method = null;
+		try {
+			method = Class.forName("com.sun.management.ThreadMXBean")
+					.getMethod("getThreadAllocatedBytes", long.class);
+			method.invoke(this.threads, Thread.currentThread().getId());
+		} catch (Exception e) {
+			method = null;
+		}
+		this.allocatedBytes = method;
+	}
+
+	/**
+	 * Creates merged defects spread over checkers, components, owners, files
+	 * and statuses in proportions typical of a large project
+	 */
+	static List<MergedDefectDataObj> createDefects(int count, long seed) {
+		Random random = new Random(seed);
+		int owners = Math.max(10, count / 200);
+		int files = Math.max(50, count / 20);
+		List<MergedDefectDataObj> defects = new ArrayList<MergedDefectDataObj>(count);
+		for (int i = 0; i < count; i++) {
+			MergedDefectDataObj defect = new MergedDefectDataObj();
+			defect.setCid(10000L + i);
+			defect.setCheckerName("CHECKER_" + random.nextInt(80));
+			defect.setComponentName("Default.component" + random.nextInt(100));
+			defect.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+			defect.setSeverity(SEVERITIES[random.nextInt(SEVERITIES.length)]);
+			// about a tenth of the defects are unassigned
+			defect.setOwner(random.nextInt(10) == 0 ? UserDefectReport.UNASSIGNED_OWNER_NAME
+					: "user" + random.nextInt(owners));
+			defect.setFilePathname("/src/module" + random.nextInt(200) + "/file"
+					+ random.nextInt(files) + ".c");
+			defects.add(defect);
+		}
+		return defects;
+	}
+
+	void runAll(int size) {
+		final List<MergedDefectDataObj> mergedDefects = createDefects(size, size);
+		final DefectTable defects = DefectTable.from(mergedDefects);
+		final Set<String> userNames = new HashSet<String>();
+		for (int i = 0; i < size / 200; i++) {
+			userNames.add("user" + i);
+		}
+		final Map<String, int[]> byComponent = ComponentDefectReport.groupByComponent(defects);
+		final Map<String, int[]> byOwner = UserDefectReport.groupByOwner(defects, userNames);
+
+		measure(size, "table.load", new Benchmark() {
+			public long run() {
+				return DefectTable.from(mergedDefects).size();
+			}
+		});
+		measure(size, "group.byComponent", new Benchmark() {
+			public long run() {
+				return ComponentDefectReport.groupByComponent(defects).size();
+			}
+		});
+		measure(size, "group.byOwner", new Benchmark() {
+			public long run() {
+				return UserDefectReport.groupByOwner(defects, userNames).size();
+			}
+		});
+		measure(size, "html.componentOwners", new Benchmark() {
+			public long run() {
+				long length = 0;
+				for (Map.Entry<String, int[]> component : byComponent.entrySet()) {
+					length += NotifyComponentOwners.buildHtml(defects,
+							component.getKey(), component.getValue(), 7).length();
+				}
+				return length;
+			}
+		});
+		measure(size, "html.defectOwners", new Benchmark() {
+			public long run() {
+				long length = 0;
+				for (Map.Entry<String, int[]> owner : byOwner.entrySet()) {
+					length += NotifyDefectOwners.buildHtml(defects,
+							owner.getValue(), "project", PROJECT_ID, 7,
+							"localhost", 8080).length();
+				}
+				return length;
+			}
+		});
+		measure(size, "html.componentManagers", new Benchmark() {
+			public long run() {
+				return NotifyComponentManagers.buildHtml(defects, "project", 7)
+						.length();
+			}
+		});
+	}
+
+	private void measure(int size, String name, Benchmark benchmark) {
+		for (int i = 0; i < this.warmUpIterations; i++) {
+			sink += benchmark.run();
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = getAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0; i < this.iterations; i++) {
+			sink += benchmark.run();
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocatedAfter = getAllocatedBytes(threadId);
+
+		double millisPerOp = elapsed / 1e6 / this.iterations;
+		String allocation = allocatedBefore < 0 ? "n/a" : String.format(
+				"%.1f", (allocatedAfter - allocatedBefore) / 1024.0 / 1024.0
+						/ this.iterations);
+		String rate = allocatedBefore < 0 ? "n/a" : String.format("%.0f",
+				(allocatedAfter - allocatedBefore) / 1024.0 / 1024.0
+						/ (elapsed / 1e9));
+		System.out.println(String.format("%-24s %9d %12.3f %12.1f %12s %10s",
+				name, size, millisPerOp, 1000 / millisPerOp, allocation, rate));
+	}
+
+	private long getAllocatedBytes(long threadId) {
+		if (this.allocatedBytes == null) {
+			return -1;
+		}
+		try {
+			return ((Long) this.allocatedBytes.invoke(this.threads, threadId))
+					.longValue();
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = { 1000, 10000, 100000, 1000000 };
+		int warmUpIterations = 5;
+		int iterations = 10;
+		try {
+			if (args.length > 0) {
+				String[] values = args[0].split(",");
+				sizes = new int[values.length];
+				for (int i = 0; i < values.length; i++) {
+					sizes[i] = Integer.parseInt(values[i].trim());
+				}
+			}
+			if (args.length > 1) {
+				warmUpIterations = Integer.parseInt(args[1]);
+			}
+			if (args.length > 2) {
+				iterations = Integer.parseInt(args[2]);
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("This program benchmarks report aggregation and rendering on synthetic defects.");
+			System.err.println("usage: java " + ReportBenchmark.class.getName()
+					+ " [sizes=1000,10000,100000,1000000] [warm-up-iterations=5] [iterations=10]");
+			return;
+		}
+
+		ReportBenchmark benchmark = new ReportBenchmark(warmUpIterations, iterations);
+		System.out.println(String.format("%-24s %9s %12s %12s %12s %10s",
+				"benchmark", "defects", "ms/op", "ops/s", "MB/op", "MB/s"));
+		for (int size : sizes) {
+			benchmark.runAll(size);
+		}
+	}
+}
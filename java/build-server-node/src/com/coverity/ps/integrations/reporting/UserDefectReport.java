@@ -1,95 +1,114 @@
-package com.coverity.ps.integrations.reporting;
-
-import java.util.ArrayList;
-import java.util.GregorianCalendar;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import javax.xml.datatype.DatatypeConfigurationException;
-import javax.xml.datatype.DatatypeFactory;
-import javax.xml.datatype.XMLGregorianCalendar;
-
-import com.coverity.ps.common.CimProxy;
-import com.coverity.ps.integrations.Integration;
-import com.coverity.ws.v4.CovRemoteServiceException_Exception;
-import com.coverity.ws.v4.MergedDefectDataObj;
-import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
-import com.coverity.ws.v4.ProjectDataObj;
-import com.coverity.ws.v4.UserDataObj;
-
-
-/*
- * Base class for defect reporting
- */
-public abstract class UserDefectReport implements Integration {
-	final static String UNASSIGNED_OWNER_NAME = "Unassigned";
-	protected boolean isDryRun;
-	protected String projectName;
-	protected int days;
-	protected long projectId;
-	
-	protected UserDefectReport(String project, int days, boolean isDryRun) {
-		this.projectName = project;
-		this.days = days;
-		this.isDryRun = isDryRun;
-	}
-	
-	protected Map<String, List<MergedDefectDataObj>> getProjectDefectsByOwner() throws CovRemoteServiceException_Exception, DatatypeConfigurationException {
-		Map<String, List<MergedDefectDataObj>> defectsByUser = new HashMap<String, List<MergedDefectDataObj>>();
-		CimProxy cimProxy = CimProxy.getInstance();
-		
-		// get project id
-		ProjectDataObj projectData = cimProxy.getProject(projectName);
-		if(projectData != null) {
-			this.projectId = projectData.getProjectKey();
-			// get users
-			Map<String, String> userMap = new HashMap<String, String>();
-			List<UserDataObj> userList = cimProxy.getAllUsers();
-			for(UserDataObj user : userList) {
-				userMap.put(user.getUsername(), user.getEmail());
-			}
-			
-			
-			// calculate as-of date
-			final long oneDay = 1000 * 60 * 60 * 24;
-			GregorianCalendar calendar = new GregorianCalendar();
-			calendar.setTimeInMillis(System.currentTimeMillis() - this.days * oneDay);
-			XMLGregorianCalendar lastDetected = DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar);
-			
-			System.out.println("as-of-date=" + lastDetected);
-			
-			// get defects
-			MergedDefectFilterSpecDataObj projectFilter = new MergedDefectFilterSpecDataObj();
-			projectFilter.setFirstDetectedStartDate(lastDetected);
-			List<MergedDefectDataObj> defects = cimProxy.getMergedDefectsForProject(this.projectName, projectFilter);
-			for(MergedDefectDataObj defect : defects) {
-				if(userMap.containsKey(defect.getOwner())) {
-					List<MergedDefectDataObj> userDefects = (List<MergedDefectDataObj>)defectsByUser.get(defect.getOwner());
-					if(userDefects == null) {
-						userDefects = new ArrayList<MergedDefectDataObj>();
-						defectsByUser.put(defect.getOwner(), userDefects);
-					}
-					// System.out.println("cid=" + defect.getCid() + ", owner=" + defect.getOwner());
-					userDefects.add(defect);
-				}
-				else {
-					List<MergedDefectDataObj> userDefects = (List<MergedDefectDataObj>)defectsByUser.get(UNASSIGNED_OWNER_NAME);
-					if(userDefects == null) {
-						userDefects = new ArrayList<MergedDefectDataObj>();
-						defectsByUser.put(UNASSIGNED_OWNER_NAME, userDefects);
-					}
-					// System.out.println("cid=" + defect.getCid() + ", owner=" + defect.getOwner());
-					userDefects.add(defect);
-				}
-			}
-		}
-		else {
-			System.err.println("Unable to find project '" + projectName + "'");
-		}
-		
-		return defectsByUser;
-	}
-	
-	abstract public boolean execute() throws Exception;
-}
+package com.coverity.ps.integrations.reporting;
+
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.coverity.ps.common.CimProxy;
+import com.coverity.ps.common.DefectTable;
+import com.coverity.ps.common.UserDirectory;
+import com.coverity.ps.integrations.Integration;
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.ProjectDataObj;
+import com.coverity.ws.v4.UserDataObj;
+
+
+/*
+ * Base class for defect reporting
+ */
+public abstract class UserDefectReport implements Integration {
+	final static String UNASSIGNED_OWNER_NAME = "Unassigned";
+	protected boolean isDryRun;
+	protected String projectName;
+	protected int days;
+	protected long projectId;
+	protected DefectTable defects = new DefectTable();
+	
+	protected UserDefectReport(String project, int days, boolean isDryRun) {
+		this.projectName = project;
+		this.days = days;
+		this.isDryRun = isDryRun;
+	}
+	
+	/**
+	 * Returns the rows of {@link #defects} grouped by owner; defects whose
+	 * owner is not a CIM user are grouped under UNASSIGNED_OWNER_NAME
+	 */
+	protected Map<String, int[]> getProjectDefectsByOwner() throws CovRemoteServiceException_Exception, DatatypeConfigurationException {
+		Map<String, int[]> defectsByUser = new HashMap<String, int[]>();
+		CimProxy cimProxy = CimProxy.getInstance();
+		
+		// get project id
+		ProjectDataObj projectData = cimProxy.getProject(projectName);
+		if(projectData != null) {
+			this.projectId = projectData.getProjectKey();
+			final UserDirectory userDirectory = UserDirectory.getInstance();
+			
+			// load the user list while the defects are fetched
+			Future<List<UserDataObj>> users = cimProxy.submitAsync(new Callable<List<UserDataObj>>() {
+				public List<UserDataObj> call() throws Exception {
+					return userDirectory.getAllUsers();
+				}
+			});
+			
+			// calculate as-of date
+			final long oneDay = 1000 * 60 * 60 * 24;
+			GregorianCalendar calendar = new GregorianCalendar();
+			calendar.setTimeInMillis(System.currentTimeMillis() - this.days * oneDay);
+			XMLGregorianCalendar lastDetected = DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar);
+			
+			System.out.println("as-of-date=" + lastDetected);
+			
+			// get defects
+			this.defects = new DefectTable();
+			cimProxy.queryMergedDefectsForProject(this.projectName)
+					.firstDetectedBetween(lastDetected, null)
+					.forEach(this.defects);
+			this.defects.trim();
+			Set<String> userNames = new HashSet<String>();
+			for(UserDataObj user : CimProxy.waitFor(users)) {
+				userNames.add(user.getUsername());
+			}
+			defectsByUser = groupByOwner(this.defects, userNames);
+		}
+		else {
+			System.err.println("Unable to find project '" + projectName + "'");
+		}
+		
+		return defectsByUser;
+	}
+	
+	/**
+	 * Groups the rows of a table by owner; owners that are not among the
+	 * given user names are grouped under UNASSIGNED_OWNER_NAME
+	 */
+	static Map<String, int[]> groupByOwner(DefectTable defects, Set<String> userNames) {
+		Map<String, int[]> defectsByUser = new HashMap<String, int[]>();
+		for(Map.Entry<String, int[]> group : defects.groupBy(DefectTable.Column.OWNER).entrySet()) {
+			if(userNames.contains(group.getKey())) {
+				defectsByUser.put(group.getKey(), group.getValue());
+			}
+			else {
+				int[] userDefects = defectsByUser.get(UNASSIGNED_OWNER_NAME);
+				if(userDefects == null) {
+					defectsByUser.put(UNASSIGNED_OWNER_NAME, group.getValue());
+				}
+				else {
+					defectsByUser.put(UNASSIGNED_OWNER_NAME, DefectTable.concat(userDefects, group.getValue()));
+				}
+			}
+		}
+		return defectsByUser;
+	}
+	
+	abstract public boolean execute() throws Exception;
+}
@@ -0,0 +1,354 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.standin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import javax.jws.WebService;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.coverity.ws.v4.AttributeDefinitionDataObj;
+import com.coverity.ws.v4.AttributeDefinitionIdDataObj;
+import com.coverity.ws.v4.AttributeDefinitionSpecDataObj;
+import com.coverity.ws.v4.CheckerPropertyDataObj;
+import com.coverity.ws.v4.CheckerPropertyFilterSpecDataObj;
+import com.coverity.ws.v4.ComponentDataObj;
+import com.coverity.ws.v4.ComponentIdDataObj;
+import com.coverity.ws.v4.ComponentMapDataObj;
+import com.coverity.ws.v4.ComponentMapFilterSpecDataObj;
+import com.coverity.ws.v4.ComponentMapIdDataObj;
+import com.coverity.ws.v4.ComponentMapSpecDataObj;
+import com.coverity.ws.v4.ConfigurationDataObj;
+import com.coverity.ws.v4.ConfigurationService;
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.GroupDataObj;
+import com.coverity.ws.v4.GroupFilterSpecDataObj;
+import com.coverity.ws.v4.GroupIdDataObj;
+import com.coverity.ws.v4.GroupSpecDataObj;
+import com.coverity.ws.v4.GroupsPageDataObj;
+import com.coverity.ws.v4.PageSpecDataObj;
+import com.coverity.ws.v4.PermissionDataObj;
+import com.coverity.ws.v4.ProjectDataObj;
+import com.coverity.ws.v4.ProjectFilterSpecDataObj;
+import com.coverity.ws.v4.ProjectIdDataObj;
+import com.coverity.ws.v4.ProjectSpecDataObj;
+import com.coverity.ws.v4.RoleDataObj;
+import com.coverity.ws.v4.RoleIdDataObj;
+import com.coverity.ws.v4.RoleSpecDataObj;
+import com.coverity.ws.v4.SnapshotFilterSpecDataObj;
+import com.coverity.ws.v4.SnapshotIdDataObj;
+import com.coverity.ws.v4.SnapshotInfoDataObj;
+import com.coverity.ws.v4.StreamDataObj;
+import com.coverity.ws.v4.StreamFilterSpecDataObj;
+import com.coverity.ws.v4.StreamIdDataObj;
+import com.coverity.ws.v4.StreamSpecDataObj;
+import com.coverity.ws.v4.UserDataObj;
+import com.coverity.ws.v4.UserFilterSpecDataObj;
+import com.coverity.ws.v4.UserSpecDataObj;
+import com.coverity.ws.v4.UsersPageDataObj;
+
+/**
+ * ConfigurationService of the stand-in CIM. It supports the operations
+ * CimProxy uses, on the synthetic data; the others fail with a service
+ * fault.
+ */
+@WebService(endpointInterface = "com.coverity.ws.v4.ConfigurationService", targetNamespace = "http://ws.coverity.com/v4", serviceName = "ConfigurationServiceService", portName = "ConfigurationServicePort")
+public class ConfigurationServiceStandIn implements ConfigurationService {
+	private final StandInData data;
+	private final FaultInjector faults;
+
+	public ConfigurationServiceStandIn(StandInData data, FaultInjector faults) {
+		this.data = data;
+		this.faults = faults;
+	}
+
+	public List<String> notify(List<String> usernames, String subject,
+			String message) throws CovRemoteServiceException_Exception {
+		this.faults.inject("notify", -1);
+		List<String> notified = new ArrayList<String>();
+		for (String username : usernames) {
+			if (!this.data.getUsers(username).isEmpty()) {
+				notified.add(username);
+			}
+		}
+		return notified;
+	}
+
+	public UsersPageDataObj getUsers(UserFilterSpecDataObj userFilterSpec,
+			PageSpecDataObj pageSpec) throws CovRemoteServiceException_Exception {
+		this.faults.inject("getUsers", pageSpec.getStartIndex());
+		List<UserDataObj> users = this.data.getUsers(userFilterSpec.getNamePattern());
+		UsersPageDataObj page = new UsersPageDataObj();
+		page.setTotalNumberOfRecords(users.size());
+		int start = Math.min(Math.max(0, pageSpec.getStartIndex()), users.size());
+		int end = Math.min(users.size(), start + Math.max(0, pageSpec.getPageSize()));
+		page.getUsers().addAll(users.subList(start, end));
+		return page;
+	}
+
+	public UserDataObj getUser(String username)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getUser", -1);
+		List<UserDataObj> users = this.data.getUsers(username);
+		if (users.isEmpty()) {
+			throw StandInData.fault("No user found for user name " + username);
+		}
+		return users.get(0);
+	}
+
+	public void createUser(UserSpecDataObj userSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("createUser", -1);
+		this.data.createUser(userSpec.getUsername(), userSpec.getGivenName(),
+				userSpec.getFamilyName(), userSpec.getEmail());
+	}
+
+	public void createProject(ProjectSpecDataObj projectSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("createProject", -1);
+		this.data.createProject(projectSpec.getName(), null);
+		updateProject(projectSpec.getName(), projectSpec);
+	}
+
+	public void updateProject(ProjectIdDataObj projectId,
+			ProjectSpecDataObj projectSpec) throws CovRemoteServiceException_Exception {
+		this.faults.inject("updateProject", -1);
+		updateProject(projectId.getName(), projectSpec);
+	}
+
+	private void updateProject(String name, ProjectSpecDataObj projectSpec)
+			throws CovRemoteServiceException_Exception {
+		List<String> streams = new ArrayList<String>();
+		for (StreamIdDataObj streamId : projectSpec.getStreams()) {
+			streams.add(streamId.getName());
+		}
+		List<String> streamLinks = new ArrayList<String>();
+		for (StreamIdDataObj streamId : projectSpec.getStreamLinks()) {
+			streamLinks.add(streamId.getName());
+		}
+		this.data.updateProject(name, projectSpec.getDescription(), streams,
+				streamLinks);
+	}
+
+	public void createStream(StreamSpecDataObj streamSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("createStream", -1);
+		this.data.createStream(streamSpec.getName(), null);
+	}
+
+	public void createStreamInProject(ProjectIdDataObj projectId,
+			StreamSpecDataObj streamSpec) throws CovRemoteServiceException_Exception {
+		this.faults.inject("createStreamInProject", -1);
+		this.data.createStream(streamSpec.getName(), projectId.getName());
+	}
+
+	public List<StreamDataObj> getStreams(StreamFilterSpecDataObj streamFilterSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getStreams", -1);
+		return this.data.getStreams(streamFilterSpec.getNamePattern());
+	}
+
+	public List<ProjectDataObj> getProjects(ProjectFilterSpecDataObj projectFilterSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getProjects", -1);
+		return this.data.getProjects(projectFilterSpec.getNamePattern());
+	}
+
+	public void deleteSnapshot(SnapshotIdDataObj snapshotId)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("deleteSnapshot", -1);
+		this.data.deleteSnapshot(snapshotId.getId());
+	}
+
+	public List<SnapshotIdDataObj> getSnapshotsForStream(StreamIdDataObj streamId,
+			SnapshotFilterSpecDataObj snapshotFilterSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getSnapshotsForStream", -1);
+		List<SnapshotIdDataObj> snapshots = new ArrayList<SnapshotIdDataObj>();
+		for (long id : this.data.getSnapshots(streamId.getName())) {
+			SnapshotIdDataObj snapshotId = new SnapshotIdDataObj();
+			snapshotId.setId(id);
+			snapshots.add(snapshotId);
+		}
+		return snapshots;
+	}
+
+	public List<String> getDefectStatuses()
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getDefectStatuses", -1);
+		return new ArrayList<String>(Arrays.asList(StandInData.STATUSES));
+	}
+
+	public XMLGregorianCalendar getServerTime()
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getServerTime", -1);
+		try {
+			return DatatypeFactory.newInstance().newXMLGregorianCalendar(
+					new GregorianCalendar());
+		} catch (DatatypeConfigurationException e) {
+			throw new CovRemoteServiceException_Exception(e.toString(), null, e);
+		}
+	}
+
+	public AttributeDefinitionDataObj getAttribute(
+			AttributeDefinitionIdDataObj attributeDefinitionId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getAttribute");
+	}
+
+	public GroupsPageDataObj getGroups(GroupFilterSpecDataObj groupFilterSpec,
+			PageSpecDataObj pageSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getGroups");
+	}
+
+	public GroupDataObj getGroup(GroupIdDataObj groupId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getGroup");
+	}
+
+	public RoleDataObj getRole(RoleIdDataObj roleId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getRole");
+	}
+
+	public void createGroup(GroupSpecDataObj groupSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("createGroup");
+	}
+
+	public void createAttribute(AttributeDefinitionSpecDataObj attributeDefinitionSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("createAttribute");
+	}
+
+	public void updateAttribute(AttributeDefinitionIdDataObj attributeDefinitionId,
+			AttributeDefinitionSpecDataObj attributeDefinitionSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("updateAttribute");
+	}
+
+	public void deleteAttribute(AttributeDefinitionIdDataObj attributeDefinitionId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("deleteAttribute");
+	}
+
+	public void createComponentMap(ComponentMapSpecDataObj componentMapSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("createComponentMap");
+	}
+
+	public void updateComponentMap(ComponentMapIdDataObj componentMapId,
+			ComponentMapSpecDataObj componentMapSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("updateComponentMap");
+	}
+
+	public void deleteComponentMap(ComponentMapIdDataObj componentMapId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("deleteComponentMap");
+	}
+
+	public void updateGroup(GroupIdDataObj groupId, GroupSpecDataObj groupSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("updateGroup");
+	}
+
+	public void deleteGroup(GroupIdDataObj groupId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("deleteGroup");
+	}
+
+	public void deleteProject(ProjectIdDataObj projectId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("deleteProject");
+	}
+
+	public void createRole(RoleSpecDataObj roleSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("createRole");
+	}
+
+	public void updateRole(RoleIdDataObj roleId, RoleSpecDataObj roleSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("updateRole");
+	}
+
+	public void deleteRole(RoleIdDataObj roleId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("deleteRole");
+	}
+
+	public void updateStream(StreamIdDataObj streamId, StreamSpecDataObj streamSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("updateStream");
+	}
+
+	public void deleteStream(StreamIdDataObj streamId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("deleteStream");
+	}
+
+	public void updateUser(String name, UserSpecDataObj userSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("updateUser");
+	}
+
+	public void deleteUser(String name)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("deleteUser");
+	}
+
+	public ComponentDataObj getComponent(ComponentIdDataObj componentId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getComponent");
+	}
+
+	public StreamDataObj copyStream(ProjectIdDataObj projectId, StreamIdDataObj streamId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("copyStream");
+	}
+
+	public List<ComponentMapDataObj> getComponentMaps(
+			ComponentMapFilterSpecDataObj componentMapFilterSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getComponentMaps");
+	}
+
+	public List<SnapshotInfoDataObj> getSnapshotInformation(
+			List<SnapshotIdDataObj> snapshotIds)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getSnapshotInformation");
+	}
+
+	public List<CheckerPropertyDataObj> getCheckerProperties(
+			CheckerPropertyFilterSpecDataObj checkerPropertyFilterSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getCheckerProperties");
+	}
+
+	public List<AttributeDefinitionDataObj> getAttributes() {
+		return new ArrayList<AttributeDefinitionDataObj>();
+	}
+
+	public List<RoleDataObj> getAllRoles() {
+		return new ArrayList<RoleDataObj>();
+	}
+
+	public List<PermissionDataObj> getAllPermissions() {
+		return new ArrayList<PermissionDataObj>();
+	}
+
+	public ConfigurationDataObj getSystemConfig() {
+		return new ConfigurationDataObj();
+	}
+
+	private static CovRemoteServiceException_Exception unsupported(String operation) {
+		return StandInData.fault(operation + " is not supported by the stand-in CIM");
+	}
+}
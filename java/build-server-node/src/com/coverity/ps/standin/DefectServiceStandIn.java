@@ -0,0 +1,220 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.standin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jws.WebService;
+
+import com.coverity.ws.v4.CheckerSubcategoryIdDataObj;
+import com.coverity.ws.v4.ComponentIdDataObj;
+import com.coverity.ws.v4.ComponentMetricsDataObj;
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.DefectChangeDataObj;
+import com.coverity.ws.v4.DefectInstanceIdDataObj;
+import com.coverity.ws.v4.DefectService;
+import com.coverity.ws.v4.DefectStateSpecDataObj;
+import com.coverity.ws.v4.FileContentsDataObj;
+import com.coverity.ws.v4.FileIdDataObj;
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+import com.coverity.ws.v4.MergedDefectsPageDataObj;
+import com.coverity.ws.v4.PageSpecDataObj;
+import com.coverity.ws.v4.ProjectIdDataObj;
+import com.coverity.ws.v4.ProjectMetricsDataObj;
+import com.coverity.ws.v4.ProjectTrendRecordFilterSpecDataObj;
+import com.coverity.ws.v4.PropertySpecDataObj;
+import com.coverity.ws.v4.StreamDefectDataObj;
+import com.coverity.ws.v4.StreamDefectFilterSpecDataObj;
+import com.coverity.ws.v4.StreamDefectIdDataObj;
+import com.coverity.ws.v4.StreamIdDataObj;
+
+/**
+ * DefectService of the stand-in CIM. It supports the operations CimProxy
+ * uses, on the synthetic data; the others fail with a service fault. Merged
+ * defects are returned in CID order.
+ */
+@WebService(endpointInterface = "com.coverity.ws.v4.DefectService", targetNamespace = "http://ws.coverity.com/v4", serviceName = "DefectServiceService", portName = "DefectServicePort")
+public class DefectServiceStandIn implements DefectService {
+	private final StandInData data;
+	private final FaultInjector faults;
+
+	public DefectServiceStandIn(StandInData data, FaultInjector faults) {
+		this.data = data;
+		this.faults = faults;
+	}
+
+	public void updateStreamDefects(List<StreamDefectIdDataObj> streamDefectIds,
+			String scope, DefectStateSpecDataObj defectStateSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("updateStreamDefects", -1);
+		this.data.updateStreamDefects(streamDefectIds, defectStateSpec);
+	}
+
+	public List<StreamDefectDataObj> getStreamDefects(List<Long> cids,
+			StreamDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getStreamDefects", -1);
+		List<StreamDefectDataObj> defects = new ArrayList<StreamDefectDataObj>();
+		for (Long cid : cids) {
+			int index = this.data.indexOf(cid);
+			if (index >= 0) {
+				defects.add(this.data.getStreamDefect(index));
+			}
+		}
+		return defects;
+	}
+
+	public MergedDefectsPageDataObj getMergedDefectsForProject(
+			ProjectIdDataObj projectId, MergedDefectFilterSpecDataObj filterSpec,
+			PageSpecDataObj pageSpec) throws CovRemoteServiceException_Exception {
+		this.faults.inject("getMergedDefectsForProject", pageSpec.getStartIndex());
+		return getPage(this.data.findDefects(this.data.getStreamScope(
+				projectId.getName(), null), filterSpec), pageSpec);
+	}
+
+	public MergedDefectsPageDataObj getMergedDefectsForStreams(
+			List<StreamIdDataObj> streamIds,
+			MergedDefectFilterSpecDataObj filterSpec, PageSpecDataObj pageSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getMergedDefectsForStreams", pageSpec.getStartIndex());
+		return getPage(this.data.findDefects(this.data.getStreamScope(null,
+				toNames(streamIds)), filterSpec), pageSpec);
+	}
+
+	public List<ComponentMetricsDataObj> getComponentMetricsForProject(
+			ProjectIdDataObj projectId, List<ComponentIdDataObj> componentIds)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getComponentMetricsForProject", -1);
+		Map<String, ComponentMetricsDataObj> metrics = new LinkedHashMap<String, ComponentMetricsDataObj>();
+		for (ComponentIdDataObj componentId : componentIds) {
+			ComponentMetricsDataObj componentMetrics = new ComponentMetricsDataObj();
+			componentMetrics.setComponentId(componentId);
+			metrics.put(componentId.getName(), componentMetrics);
+		}
+
+		for (int index : this.data.findDefects(this.data.getStreamScope(
+				projectId.getName(), null), new MergedDefectFilterSpecDataObj())) {
+			ComponentMetricsDataObj componentMetrics = metrics.get(this.data
+					.getComponent(index));
+			if (componentMetrics == null) {
+				continue;
+			}
+			componentMetrics.setTotalCount(componentMetrics.getTotalCount() + 1);
+			String status = this.data.getStatus(index);
+			if ("New".equals(status)) {
+				componentMetrics.setNewCount(componentMetrics.getNewCount() + 1);
+				componentMetrics.setOutstandingCount(componentMetrics.getOutstandingCount() + 1);
+			} else if ("Triaged".equals(status)) {
+				componentMetrics.setTriagedCount(componentMetrics.getTriagedCount() + 1);
+				componentMetrics.setOutstandingCount(componentMetrics.getOutstandingCount() + 1);
+			} else if ("Dismissed".equals(status)) {
+				componentMetrics.setDismissedCount(componentMetrics.getDismissedCount() + 1);
+				componentMetrics.setResolvedCount(componentMetrics.getResolvedCount() + 1);
+			} else {
+				componentMetrics.setFixedCount(componentMetrics.getFixedCount() + 1);
+				componentMetrics.setResolvedCount(componentMetrics.getResolvedCount() + 1);
+			}
+		}
+		return new ArrayList<ComponentMetricsDataObj>(metrics.values());
+	}
+
+	public List<Long> getCIDsForProject(ProjectIdDataObj projectId,
+			MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getCIDsForProject", -1);
+		return toCids(this.data.findDefects(this.data.getStreamScope(
+				projectId.getName(), null), filterSpec));
+	}
+
+	public List<Long> getCIDsForStreams(List<StreamIdDataObj> streamIds,
+			MergedDefectFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		this.faults.inject("getCIDsForStreams", -1);
+		return toCids(this.data.findDefects(this.data.getStreamScope(null,
+				toNames(streamIds)), filterSpec));
+	}
+
+	private MergedDefectsPageDataObj getPage(int[] indices,
+			PageSpecDataObj pageSpec) {
+		MergedDefectsPageDataObj page = new MergedDefectsPageDataObj();
+		page.setTotalNumberOfRecords(indices.length);
+		int start = Math.min(Math.max(0, pageSpec.getStartIndex()), indices.length);
+		int end = Math.min(indices.length, start + Math.max(0, pageSpec.getPageSize()));
+		for (int i = start; i < end; i++) {
+			page.getMergedDefects().add(this.data.getMergedDefect(indices[i]));
+		}
+		return page;
+	}
+
+	private List<Long> toCids(int[] indices) {
+		List<Long> cids = new ArrayList<Long>(indices.length);
+		for (int index : indices) {
+			cids.add(StandInData.FIRST_CID + index);
+		}
+		return cids;
+	}
+
+	private static List<String> toNames(List<StreamIdDataObj> streamIds) {
+		List<String> names = new ArrayList<String>();
+		for (StreamIdDataObj streamId : streamIds) {
+			names.add(streamId.getName());
+		}
+		return names;
+	}
+
+	public void updateDefectInstanceProperties(
+			DefectInstanceIdDataObj defectInstanceId,
+			List<PropertySpecDataObj> propertySpecs)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("updateDefectInstanceProperties");
+	}
+
+	public List<DefectChangeDataObj> getMergedDefectHistory(Long cid,
+			String mergeKey)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getMergedDefectHistory");
+	}
+
+	public List<ProjectMetricsDataObj> getTrendRecordsForProject(
+			ProjectIdDataObj projectId,
+			ProjectTrendRecordFilterSpecDataObj filterSpec)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getTrendRecordsForProject");
+	}
+
+	public Long getCIDForDMCID(Long dmCid, String dmName)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getCIDForDMCID");
+	}
+
+	public void copyStreamDefectStates(List<Long> cids,
+			StreamIdDataObj sourceStreamId, StreamIdDataObj targetStreamId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("copyStreamDefectStates");
+	}
+
+	public List<CheckerSubcategoryIdDataObj> getCheckerSubcategoriesForProject(
+			ProjectIdDataObj projectId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getCheckerSubcategoriesForProject");
+	}
+
+	public List<CheckerSubcategoryIdDataObj> getCheckerSubcategoriesForStreams(
+			List<StreamIdDataObj> streamIds)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getCheckerSubcategoriesForStreams");
+	}
+
+	public FileContentsDataObj getFileContents(StreamIdDataObj streamId,
+			FileIdDataObj fileId)
+			throws CovRemoteServiceException_Exception {
+		throw unsupported("getFileContents");
+	}
+
+	private static CovRemoteServiceException_Exception unsupported(String operation) {
+		return StandInData.fault(operation + " is not supported by the stand-in CIM");
+	}
+}
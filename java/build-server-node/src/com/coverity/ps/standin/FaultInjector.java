@@ -0,0 +1,82 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.standin;
+
+import java.util.Random;
+
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+
+/**
+ * Latency and faults added to the calls of the stand-in CIM. Every call waits
+ * for the base latency plus a random jitter; paged calls also wait in
+ * proportion to their start index, the way offset paging slows down on deep
+ * pages of the real CIM. A share of the calls fails with a service fault.
+ * Instances are thread safe.
+ */
+public class FaultInjector {
+	private final long latencyMillis;
+	private final long jitterMillis;
+	private final long pageLatencyMillis;
+	private final double faultRate;
+	private final Random random;
+	private long faults = 0;
+
+	/**
+	 * @param latencyMillis latency added to each call
+	 * @param jitterMillis maximum random latency added on top
+	 * @param pageLatencyMillis latency added per 1000 records of the start
+	 *            index of a page
+	 * @param faultRate share of calls, from 0 to 1, that fail
+	 * @param seed seed of the jitter and the faults
+	 */
+	public FaultInjector(long latencyMillis, long jitterMillis,
+			long pageLatencyMillis, double faultRate, long seed) {
+		this.latencyMillis = latencyMillis;
+		this.jitterMillis = jitterMillis;
+		this.pageLatencyMillis = pageLatencyMillis;
+		this.faultRate = faultRate;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Delays a call and possibly fails it
+	 *
+	 * @param operation name of the operation, for the fault message
+	 * @param startIndex start index of the requested page, -1 if not paged
+	 */
+	public void inject(String operation, int startIndex)
+			throws CovRemoteServiceException_Exception {
+		long delay = this.latencyMillis;
+		boolean fail;
+		synchronized (this) {
+			if (this.jitterMillis > 0) {
+				delay += (long) (this.random.nextDouble() * this.jitterMillis);
+			}
+			fail = this.faultRate > 0 && this.random.nextDouble() < this.faultRate;
+			if (fail) {
+				this.faults++;
+			}
+		}
+		if (startIndex > 0) {
+			delay += this.pageLatencyMillis * startIndex / 1000;
+		}
+
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (fail) {
+			throw StandInData.fault("Injected fault in " + operation);
+		}
+	}
+
+	/**
+	 * Number of faults injected so far
+	 */
+	public synchronized long getFaults() {
+		return this.faults;
+	}
+}
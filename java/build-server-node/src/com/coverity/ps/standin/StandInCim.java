@@ -0,0 +1,191 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.standin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPHeader;
+import javax.xml.ws.Endpoint;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.handler.Handler;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPHandler;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+
+import org.w3c.dom.NodeList;
+
+/**
+ * Stand-in for the Coverity Integrity Manager, serving the v4
+ * ConfigurationService and DefectService operations CimProxy uses on
+ * synthetic data, with injected latency and faults. Point the cim settings
+ * of coverity-bn-config.xml at its address and port to run the integrations
+ * without a real CIM. Requests must not be compressed (http-compression
+ * "response" or "none").
+ */
+public class StandInCim {
+	private static final String WSS_URI = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd";
+	private final StandInData data;
+	private final FaultInjector faults;
+	private final String user;
+	private final String password;
+	private final List<Endpoint> endpoints = new ArrayList<Endpoint>();
+	private ExecutorService executor;
+
+	/**
+	 * @param user user name requests must authenticate with, or null to
+	 *            accept any
+	 * @param password password requests must authenticate with
+	 */
+	public StandInCim(StandInData data, FaultInjector faults, String user,
+			String password) {
+		this.data = data;
+		this.faults = faults;
+		this.user = user;
+		this.password = password;
+	}
+
+	/**
+	 * Publishes both services under http://host:port/ws/v4/
+	 *
+	 * @param threads number of threads serving requests
+	 */
+	public synchronized void start(String host, int port, int threads) {
+		this.executor = Executors.newFixedThreadPool(threads);
+		String commonUrl = "http://" + host + ":" + port + "/ws/v4";
+		publish(new ConfigurationServiceStandIn(this.data, this.faults),
+				commonUrl + "/configurationservice");
+		publish(new DefectServiceStandIn(this.data, this.faults), commonUrl
+				+ "/defectservice");
+	}
+
+	public synchronized void stop() {
+		for (Endpoint endpoint : this.endpoints) {
+			endpoint.stop();
+		}
+		this.endpoints.clear();
+		if (this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
+		}
+	}
+
+	public StandInData getData() {
+		return this.data;
+	}
+
+	public FaultInjector getFaults() {
+		return this.faults;
+	}
+
+	private void publish(Object implementor, String address) {
+		Endpoint endpoint = Endpoint.create(implementor);
+		// the JAX-WS API declares the handler chain with the raw Handler type
+		@SuppressWarnings("rawtypes")
+		List<Handler> chain = new ArrayList<Handler>();
+		chain.add(new SecurityHeaderHandler());
+		endpoint.getBinding().setHandlerChain(chain);
+		endpoint.setExecutor(this.executor);
+		endpoint.publish(address);
+		this.endpoints.add(endpoint);
+	}
+
+	/**
+	 * Accepts the ws-security header added by the client's handler and checks
+	 * its user name and password
+	 */
+	private class SecurityHeaderHandler implements SOAPHandler<SOAPMessageContext> {
+		public Set<QName> getHeaders() {
+			return new HashSet<QName>(Arrays.asList(new QName(WSS_URI, "Security")));
+		}
+
+		public boolean handleMessage(SOAPMessageContext smc) {
+			boolean outbound = ((Boolean) smc
+					.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY)).booleanValue();
+			if (outbound || user == null) {
+				return true;
+			}
+
+			try {
+				SOAPHeader header = smc.getMessage().getSOAPHeader();
+				if (header == null
+						|| !user.equals(getText(header, "Username"))
+						|| !password.equals(getText(header, "Password"))) {
+					throw new WebServiceException("Invalid user name or password");
+				}
+			} catch (SOAPException e) {
+				throw new WebServiceException(e);
+			}
+			return true;
+		}
+
+		private String getText(SOAPHeader header, String localName) {
+			NodeList nodes = header.getElementsByTagNameNS(WSS_URI, localName);
+			return nodes.getLength() > 0 ? nodes.item(0).getTextContent() : null;
+		}
+
+		public boolean handleFault(SOAPMessageContext smc) {
+			return true;
+		}
+
+		public void close(MessageContext mc) {
+		}
+	}
+
+	public static void main(String[] args) {
+		Map<String, String> options = new HashMap<String, String>();
+		options.put("host", "localhost");
+		options.put("port", "8080");
+		options.put("projects", "10");
+		options.put("streams", "5");
+		options.put("users", "1000");
+		options.put("defects", "100000");
+		options.put("latency", "0");
+		options.put("jitter", "0");
+		options.put("page-latency", "0");
+		options.put("fault-rate", "0");
+		options.put("threads", "16");
+		options.put("seed", "1");
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (separator < 0 || !options.containsKey(arg.substring(0, separator))
+					&& !arg.startsWith("user=") && !arg.startsWith("password=")) {
+				System.err.println("This program serves synthetic CIM data for load tests of the integrations.");
+				System.err.println("usage: java " + StandInCim.class.getName()
+						+ " [host=localhost] [port=8080] [projects=10] [streams=5] [users=1000] [defects=100000]"
+						+ " [latency=ms] [jitter=ms] [page-latency=ms per 1000 records of page offset]"
+						+ " [fault-rate=0..1] [threads=16] [seed=1] [user=name password=secret]");
+				return;
+			}
+			options.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+
+		long start = System.currentTimeMillis();
+		long seed = Long.parseLong(options.get("seed"));
+		StandInData data = new StandInData(Integer.parseInt(options.get("projects")),
+				Integer.parseInt(options.get("streams")),
+				Integer.parseInt(options.get("users")),
+				Integer.parseInt(options.get("defects")), seed);
+		FaultInjector faults = new FaultInjector(Long.parseLong(options.get("latency")),
+				Long.parseLong(options.get("jitter")),
+				Long.parseLong(options.get("page-latency")),
+				Double.parseDouble(options.get("fault-rate")), seed);
+		StandInCim cim = new StandInCim(data, faults, options.get("user"),
+				options.get("password") != null ? options.get("password") : "");
+		cim.start(options.get("host"), Integer.parseInt(options.get("port")),
+				Integer.parseInt(options.get("threads")));
+		System.out.println("stand-in CIM with " + data.getDefectCount()
+				+ " defects listening on http://" + options.get("host") + ":"
+				+ options.get("port") + "/ws/v4 (started in "
+				+ (System.currentTimeMillis() - start) + "ms)");
+	}
+}
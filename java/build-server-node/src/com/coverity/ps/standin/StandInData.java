@@ -0,0 +1,561 @@
+// (c) 2011 Coverity, Inc. All rights reserved worldwide.
+
+package com.coverity.ps.standin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.coverity.ws.v4.CheckerSubcategoryFilterSpecDataObj;
+import com.coverity.ws.v4.CovRemoteServiceException;
+import com.coverity.ws.v4.CovRemoteServiceException_Exception;
+import com.coverity.ws.v4.DefectStateSpecDataObj;
+import com.coverity.ws.v4.MergedDefectDataObj;
+import com.coverity.ws.v4.MergedDefectFilterSpecDataObj;
+import com.coverity.ws.v4.ProjectDataObj;
+import com.coverity.ws.v4.ProjectIdDataObj;
+import com.coverity.ws.v4.StreamDataObj;
+import com.coverity.ws.v4.StreamDefectDataObj;
+import com.coverity.ws.v4.StreamDefectIdDataObj;
+import com.coverity.ws.v4.StreamIdDataObj;
+import com.coverity.ws.v4.UserDataObj;
+
+/**
+ * Synthetic projects, streams, users and defects served by the stand-in CIM.
+ * Each defect belongs to one stream and has one stream defect with the same
+ * id as its CID. Only the triage state of a defect is stored, in compact
+ * arrays; everything else is derived from the CID, so a data set of a
+ * million defects needs a few megabytes. The data is the same for the same
+ * seed. Instances are thread safe.
+ */
+public class StandInData {
+	static final long FIRST_CID = 10001;
+	static final String UNASSIGNED = "Unassigned";
+	static final String[] STATUSES = { "New", "Triaged", "Dismissed", "Fixed" };
+	static final String[] SEVERITIES = { "Unspecified", "Major", "Moderate", "Minor" };
+	static final String[] CLASSIFICATIONS = { "Unclassified", "Pending", "Bug",
+			"False Positive", "Intentional" };
+	static final String[] ACTIONS = { "Undecided", "Fix Required",
+			"Fix Submitted", "Modeling Required", "Ignore" };
+	static final String[] CHECKERS = { "NULL_RETURNS", "FORWARD_NULL",
+			"RESOURCE_LEAK", "UNINIT", "OVERRUN_STATIC", "DEADCODE",
+			"CHECKED_RETURN", "REVERSE_INULL", "USE_AFTER_FREE", "MISSING_BREAK" };
+	private static final int COMPONENTS = 20;
+	private static final int FILES_PER_COMPONENT = 50;
+	private static final int SNAPSHOTS_PER_STREAM = 5;
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+	private final DatatypeFactory datatypeFactory;
+	private final long now = System.currentTimeMillis();
+	private final Map<String, ProjectDataObj> projects = new LinkedHashMap<String, ProjectDataObj>();
+	private final Map<String, StreamDataObj> streams = new LinkedHashMap<String, StreamDataObj>();
+	private final Map<String, Integer> streamIndex = new HashMap<String, Integer>();
+	private final List<String> streamNames = new ArrayList<String>();
+	private final Map<String, UserDataObj> users = new LinkedHashMap<String, UserDataObj>();
+	private final List<String> owners = new ArrayList<String>();
+	private final Map<String, Integer> ownerIndex = new HashMap<String, Integer>();
+	private final Set<Long> deletedSnapshots = new HashSet<Long>();
+	private final int defectCount;
+	// per defect: stream index, derived attributes and triage state
+	private final int[] defectStream;
+	private final int[] defectHash;
+	private final byte[] status;
+	private final byte[] severity;
+	private final byte[] classification;
+	private final byte[] action;
+	private final int[] owner;
+	private final long[] lastTriaged;
+
+	/**
+	 * Creates the data set
+	 *
+	 * @param projectCount number of projects
+	 * @param streamsPerProject number of streams in each project
+	 * @param userCount number of users
+	 * @param defectCount number of defects, spread over all streams
+	 * @param seed seed of the random attributes
+	 */
+	public StandInData(int projectCount, int streamsPerProject, int userCount,
+			int defectCount, long seed) {
+		try {
+			this.datatypeFactory = DatatypeFactory.newInstance();
+		} catch (DatatypeConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+
+		for (int p = 0; p < projectCount; p++) {
+			ProjectDataObj project = createProject("project" + p, (long) p + 1);
+			for (int s = 0; s < streamsPerProject; s++) {
+				StreamDataObj stream = createStream("project" + p + "-stream" + s,
+						project.getId().getName());
+				project.getStreams().add(stream);
+			}
+		}
+		for (int u = 0; u < userCount; u++) {
+			createUser("user" + u, "User", String.valueOf(u), "user" + u
+					+ "@example.com");
+		}
+
+		Random random = new Random(seed);
+		int streamCount = Math.max(1, this.streams.size());
+		this.defectCount = defectCount;
+		this.defectStream = new int[defectCount];
+		this.defectHash = new int[defectCount];
+		this.status = new byte[defectCount];
+		this.severity = new byte[defectCount];
+		this.classification = new byte[defectCount];
+		this.action = new byte[defectCount];
+		this.owner = new int[defectCount];
+		this.lastTriaged = new long[defectCount];
+		for (int i = 0; i < defectCount; i++) {
+			this.defectStream[i] = random.nextInt(streamCount);
+			this.defectHash[i] = random.nextInt() & Integer.MAX_VALUE;
+			// about half the defects are untriaged
+			if (random.nextBoolean() || this.owners.isEmpty()) {
+				this.owner[i] = -1;
+				continue;
+			}
+			this.status[i] = (byte) (1 + random.nextInt(STATUSES.length - 1));
+			this.severity[i] = (byte) random.nextInt(SEVERITIES.length);
+			this.classification[i] = (byte) random.nextInt(CLASSIFICATIONS.length);
+			this.action[i] = (byte) random.nextInt(ACTIONS.length);
+			this.owner[i] = random.nextInt(this.owners.size());
+			this.lastTriaged[i] = this.now - random.nextInt(365) * DAY_MILLIS;
+		}
+	}
+
+	public int getDefectCount() {
+		return this.defectCount;
+	}
+
+	public synchronized List<ProjectDataObj> getProjects(String namePattern) {
+		List<ProjectDataObj> results = new ArrayList<ProjectDataObj>();
+		Pattern pattern = toPattern(namePattern);
+		for (ProjectDataObj project : this.projects.values()) {
+			if (pattern.matcher(project.getId().getName()).matches()) {
+				results.add(project);
+			}
+		}
+		return results;
+	}
+
+	public synchronized List<StreamDataObj> getStreams(String namePattern) {
+		List<StreamDataObj> results = new ArrayList<StreamDataObj>();
+		Pattern pattern = toPattern(namePattern);
+		for (StreamDataObj stream : this.streams.values()) {
+			if (pattern.matcher(stream.getId().getName()).matches()) {
+				results.add(stream);
+			}
+		}
+		return results;
+	}
+
+	public synchronized List<UserDataObj> getUsers(String namePattern) {
+		List<UserDataObj> results = new ArrayList<UserDataObj>();
+		Pattern pattern = toPattern(namePattern);
+		for (UserDataObj user : this.users.values()) {
+			if (pattern.matcher(user.getUsername()).matches()) {
+				results.add(user);
+			}
+		}
+		return results;
+	}
+
+	public synchronized ProjectDataObj createProject(String name, Long projectKey) {
+		ProjectIdDataObj projectId = new ProjectIdDataObj();
+		projectId.setName(name);
+		ProjectDataObj project = new ProjectDataObj();
+		project.setId(projectId);
+		project.setProjectKey(projectKey != null ? projectKey : (long) this.projects.size() + 1);
+		project.setDateCreated(toCalendar(this.now));
+		this.projects.put(name, project);
+		return project;
+	}
+
+	public synchronized StreamDataObj createStream(String name, String primaryProject) {
+		StreamIdDataObj streamId = new StreamIdDataObj();
+		streamId.setName(name);
+		StreamDataObj stream = new StreamDataObj();
+		stream.setId(streamId);
+		stream.setLanguage("CXX");
+		if (primaryProject != null) {
+			ProjectIdDataObj projectId = new ProjectIdDataObj();
+			projectId.setName(primaryProject);
+			stream.setPrimaryProjectId(projectId);
+		}
+		if (!this.streams.containsKey(name)) {
+			this.streamIndex.put(name, this.streamNames.size());
+			this.streamNames.add(name);
+		}
+		this.streams.put(name, stream);
+		return stream;
+	}
+
+	public synchronized UserDataObj createUser(String username, String givenName,
+			String familyName, String email) {
+		UserDataObj user = new UserDataObj();
+		user.setUsername(username);
+		user.setGivenName(givenName);
+		user.setFamilyName(familyName);
+		user.setEmail(email);
+		user.setLocal(true);
+		user.setDisabled(false);
+		user.setLocked(false);
+		user.setDateCreated(toCalendar(this.now));
+		if (!this.ownerIndex.containsKey(username)) {
+			this.ownerIndex.put(username, this.owners.size());
+			this.owners.add(username);
+		}
+		this.users.put(username, user);
+		return user;
+	}
+
+	/**
+	 * Returns the ids of a stream's snapshots that have not been deleted;
+	 * every stream starts with the same number of snapshots
+	 */
+	public synchronized List<Long> getSnapshots(String stream)
+			throws CovRemoteServiceException_Exception {
+		getStream(stream);
+		List<Long> snapshots = new ArrayList<Long>();
+		long first = (long) this.streamIndex.get(stream) * SNAPSHOTS_PER_STREAM + 1;
+		for (long id = first; id < first + SNAPSHOTS_PER_STREAM; id++) {
+			if (!this.deletedSnapshots.contains(id)) {
+				snapshots.add(id);
+			}
+		}
+		return snapshots;
+	}
+
+	public synchronized void deleteSnapshot(long id)
+			throws CovRemoteServiceException_Exception {
+		if (id < 1 || id > (long) this.streamNames.size() * SNAPSHOTS_PER_STREAM
+				|| !this.deletedSnapshots.add(id)) {
+			throw fault("No snapshot found for id " + id);
+		}
+	}
+
+	/**
+	 * Replaces the streams and stream links of a project
+	 */
+	public synchronized void updateProject(String name, String description,
+			Collection<String> streamNames, Collection<String> streamLinkNames)
+			throws CovRemoteServiceException_Exception {
+		ProjectDataObj project = this.projects.get(name);
+		if (project == null) {
+			throw fault("No project found for name " + name);
+		}
+		if (description != null) {
+			project.setDescription(description);
+		}
+		project.setDateModified(toCalendar(System.currentTimeMillis()));
+		project.getStreams().clear();
+		for (String streamName : streamNames) {
+			project.getStreams().add(getStream(streamName));
+		}
+		project.getStreamLinks().clear();
+		for (String streamName : streamLinkNames) {
+			project.getStreamLinks().add(getStream(streamName));
+		}
+	}
+
+	/**
+	 * Returns the indices of the streams in a project, or of the named
+	 * streams if project is null
+	 */
+	public synchronized Set<Integer> getStreamScope(String project,
+			Collection<String> streamNames) throws CovRemoteServiceException_Exception {
+		Set<Integer> scope = new HashSet<Integer>();
+		if (project != null) {
+			ProjectDataObj projectData = this.projects.get(project);
+			if (projectData == null) {
+				throw fault("No project found for name " + project);
+			}
+			List<StreamDataObj> members = new ArrayList<StreamDataObj>(projectData.getStreams());
+			members.addAll(projectData.getStreamLinks());
+			for (StreamDataObj stream : members) {
+				scope.add(this.streamIndex.get(stream.getId().getName()));
+			}
+		} else {
+			for (String streamName : streamNames) {
+				getStream(streamName);
+				scope.add(this.streamIndex.get(streamName));
+			}
+		}
+		return scope;
+	}
+
+	/**
+	 * Returns the indices of the defects in scope that match the filter spec,
+	 * in CID order. The filter spec's status, severity, owner,
+	 * classification, action, checker, CID and date conditions are applied;
+	 * others are ignored.
+	 */
+	public synchronized int[] findDefects(Set<Integer> scope,
+			MergedDefectFilterSpecDataObj filterSpec) {
+		Set<String> checkers = new HashSet<String>();
+		for (CheckerSubcategoryFilterSpecDataObj checkerSpec : filterSpec
+				.getCheckerSubcategoryFilterSpecList()) {
+			checkers.add(checkerSpec.getCheckerName());
+		}
+		Set<Long> cids = new HashSet<Long>(filterSpec.getCidList());
+		Set<String> statuses = new HashSet<String>(filterSpec.getStatusNameList());
+		Set<String> severities = new HashSet<String>(filterSpec.getSeverityNameList());
+		Set<String> ownerNames = new HashSet<String>(filterSpec.getOwnerNameList());
+		Set<String> classifications = new HashSet<String>(filterSpec.getClassificationNameList());
+		Set<String> actions = new HashSet<String>(filterSpec.getActionNameList());
+		long[] firstDetected = toRange(filterSpec.getFirstDetectedStartDate(),
+				filterSpec.getFirstDetectedEndDate());
+		long[] lastDetected = toRange(filterSpec.getLastDetectedStartDate(),
+				filterSpec.getLastDetectedEndDate());
+		long[] lastTriagedRange = toRange(filterSpec.getLastTriagedStartDate(),
+				filterSpec.getLastTriagedEndDate());
+
+		int[] matches = new int[64];
+		int count = 0;
+		for (int i = 0; i < this.defectCount; i++) {
+			long cid = FIRST_CID + i;
+			if (!scope.contains(this.defectStream[i])
+					|| (filterSpec.getMinCid() != null && cid < filterSpec.getMinCid())
+					|| (filterSpec.getMaxCid() != null && cid > filterSpec.getMaxCid())
+					|| (!cids.isEmpty() && !cids.contains(cid))
+					|| !matches(statuses, STATUSES[this.status[i]])
+					|| !matches(severities, SEVERITIES[this.severity[i]])
+					|| !matches(ownerNames, getOwner(i))
+					|| !matches(classifications, CLASSIFICATIONS[this.classification[i]])
+					|| !matches(actions, ACTIONS[this.action[i]])
+					|| !matches(checkers, CHECKERS[this.defectHash[i] % CHECKERS.length])
+					|| !between(getFirstDetected(i), firstDetected)
+					|| !between(getLastDetected(i), lastDetected)
+					|| !between(this.lastTriaged[i], lastTriagedRange)) {
+				continue;
+			}
+			if (count == matches.length) {
+				int[] grown = new int[count * 2];
+				System.arraycopy(matches, 0, grown, 0, count);
+				matches = grown;
+			}
+			matches[count++] = i;
+		}
+
+		int[] results = new int[count];
+		System.arraycopy(matches, 0, results, 0, count);
+		return results;
+	}
+
+	/**
+	 * Returns the index of a CID, or -1 if there is no such defect
+	 */
+	public int indexOf(long cid) {
+		long index = cid - FIRST_CID;
+		return index >= 0 && index < this.defectCount ? (int) index : -1;
+	}
+
+	public synchronized MergedDefectDataObj getMergedDefect(int index) {
+		int hash = this.defectHash[index];
+		int component = hash % COMPONENTS;
+		MergedDefectDataObj defect = new MergedDefectDataObj();
+		defect.setCid(FIRST_CID + index);
+		defect.setCheckerName(CHECKERS[hash % CHECKERS.length]);
+		defect.setCheckerSubcategory("none");
+		defect.setDomain("STATIC_C");
+		defect.setComponentName("component" + component);
+		defect.setFilePathname("/src/component" + component + "/file"
+				+ (hash / COMPONENTS) % FILES_PER_COMPONENT + ".c");
+		defect.setFunctionDisplayName("function" + hash % 1000);
+		defect.setMergeKey(Integer.toHexString(hash));
+		defect.setOccurrenceCount(1 + hash % 3);
+		defect.setStatus(STATUSES[this.status[index]]);
+		defect.setSeverity(SEVERITIES[this.severity[index]]);
+		defect.setClassification(CLASSIFICATIONS[this.classification[index]]);
+		defect.setAction(ACTIONS[this.action[index]]);
+		defect.setOwner(getOwner(index));
+		String stream = getStreamName(this.defectStream[index]);
+		defect.setFirstDetectedStream(stream);
+		defect.setLastDetectedStream(stream);
+		defect.setFirstDetected(toCalendar(getFirstDetected(index)));
+		defect.setLastDetected(toCalendar(getLastDetected(index)));
+		if (this.lastTriaged[index] != 0) {
+			defect.setLastTriaged(toCalendar(this.lastTriaged[index]));
+		}
+		return defect;
+	}
+
+	public synchronized StreamDefectDataObj getStreamDefect(int index) {
+		StreamDefectIdDataObj id = new StreamDefectIdDataObj();
+		id.setId(FIRST_CID + index);
+		id.setVerNum(1);
+		StreamIdDataObj streamId = new StreamIdDataObj();
+		streamId.setName(getStreamName(this.defectStream[index]));
+		StreamDefectDataObj defect = new StreamDefectDataObj();
+		defect.setId(id);
+		defect.setCid(FIRST_CID + index);
+		defect.setStreamId(streamId);
+		defect.setStatus(STATUSES[this.status[index]]);
+		defect.setSeverity(SEVERITIES[this.severity[index]]);
+		defect.setClassification(CLASSIFICATIONS[this.classification[index]]);
+		defect.setAction(ACTIONS[this.action[index]]);
+		defect.setOwner(getOwner(index));
+		return defect;
+	}
+
+	/**
+	 * Applies a triage change to stream defects; the ids of the stream
+	 * defects are the CIDs
+	 */
+	public synchronized void updateStreamDefects(
+			List<StreamDefectIdDataObj> ids, DefectStateSpecDataObj state)
+			throws CovRemoteServiceException_Exception {
+		int ownerValue = -2;
+		if (state.getOwner() != null) {
+			if (UNASSIGNED.equals(state.getOwner())) {
+				ownerValue = -1;
+			} else if (this.ownerIndex.containsKey(state.getOwner())) {
+				ownerValue = this.ownerIndex.get(state.getOwner());
+			} else {
+				throw fault("No user found for user name " + state.getOwner());
+			}
+		}
+		int statusValue = indexOf(STATUSES, state.getStatus());
+		int severityValue = indexOf(SEVERITIES, state.getSeverity());
+		int classificationValue = indexOf(CLASSIFICATIONS, state.getClassification());
+		int actionValue = indexOf(ACTIONS, state.getAction());
+
+		for (StreamDefectIdDataObj id : ids) {
+			int index = indexOf(id.getId());
+			if (index < 0) {
+				throw fault("No stream defect found for id " + id.getId());
+			}
+			if (ownerValue != -2) {
+				this.owner[index] = ownerValue;
+			}
+			if (statusValue >= 0) {
+				this.status[index] = (byte) statusValue;
+			}
+			if (severityValue >= 0) {
+				this.severity[index] = (byte) severityValue;
+			}
+			if (classificationValue >= 0) {
+				this.classification[index] = (byte) classificationValue;
+			}
+			if (actionValue >= 0) {
+				this.action[index] = (byte) actionValue;
+			}
+			this.lastTriaged[index] = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Component name of a defect
+	 */
+	public String getComponent(int index) {
+		return "component" + this.defectHash[index] % COMPONENTS;
+	}
+
+	public synchronized String getStatus(int index) {
+		return STATUSES[this.status[index]];
+	}
+
+	private StreamDataObj getStream(String name)
+			throws CovRemoteServiceException_Exception {
+		StreamDataObj stream = this.streams.get(name);
+		if (stream == null) {
+			throw fault("No stream found for name " + name);
+		}
+		return stream;
+	}
+
+	private String getStreamName(int index) {
+		return this.streamNames.get(index);
+	}
+
+	private String getOwner(int index) {
+		return this.owner[index] < 0 ? UNASSIGNED : this.owners.get(this.owner[index]);
+	}
+
+	private long getFirstDetected(int index) {
+		return this.now - (this.defectHash[index] % 730 + 1) * DAY_MILLIS;
+	}
+
+	private long getLastDetected(int index) {
+		return this.now - (this.defectHash[index] % 30) * DAY_MILLIS;
+	}
+
+	private XMLGregorianCalendar toCalendar(long millis) {
+		GregorianCalendar calendar = new GregorianCalendar();
+		calendar.setTimeInMillis(millis);
+		return this.datatypeFactory.newXMLGregorianCalendar(calendar);
+	}
+
+	static CovRemoteServiceException_Exception fault(String message) {
+		CovRemoteServiceException faultInfo = new CovRemoteServiceException();
+		faultInfo.setErrorCode(1000);
+		faultInfo.setMessage(message);
+		return new CovRemoteServiceException_Exception(message, faultInfo);
+	}
+
+	private static boolean matches(Set<String> values, String value) {
+		return values.isEmpty() || values.contains(value);
+	}
+
+	/**
+	 * Converts a date range to [start, end] in milliseconds, or null if it
+	 * has no bounds
+	 */
+	private static long[] toRange(XMLGregorianCalendar start,
+			XMLGregorianCalendar end) {
+		if (start == null && end == null) {
+			return null;
+		}
+		return new long[] {
+				start != null ? start.toGregorianCalendar().getTimeInMillis() : Long.MIN_VALUE,
+				end != null ? end.toGregorianCalendar().getTimeInMillis() : Long.MAX_VALUE };
+	}
+
+	/**
+	 * True if the date is in the range; a date of 0 (never) is in no range
+	 */
+	private static boolean between(long millis, long[] range) {
+		return range == null
+				|| (millis != 0 && millis >= range[0] && millis <= range[1]);
+	}
+
+	private static int indexOf(String[] values, String value) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i].equals(value)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Converts a CIM name pattern, where * matches anything, to a regular
+	 * expression; a null pattern matches everything
+	 */
+	private static Pattern toPattern(String namePattern) {
+		if (namePattern == null || namePattern.length() == 0) {
+			return Pattern.compile(".*", Pattern.DOTALL);
+		}
+		StringBuilder regex = new StringBuilder();
+		String[] parts = namePattern.split("\\*", -1);
+		for (int i = 0; i < parts.length; i++) {
+			if (i > 0) {
+				regex.append(".*");
+			}
+			regex.append(Pattern.quote(parts[i]));
+		}
+		return Pattern.compile(regex.toString(), Pattern.DOTALL);
+	}
+}